@@ -0,0 +1,26 @@
+package com.websocket.chat.registry;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Created by Robin on 2016-01-04.
+ * <p>
+ * Runs the benchmarks with the GC profiler enabled to report allocation
+ * rates per operation. The first argument is an optional regex to select benchmarks.
+ * <p>
+ * Built and run by the jmh profile, mvn -P jmh -Djmh.include=<regex>.
+ */
+public class Benchmarks {
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include((args.length > 0) ? args[0] : "com.websocket.chat.registry.*")
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,80 @@
+package com.websocket.chat.registry;
+
+import com.websocket.chat.registry.Model.Connector;
+import com.websocket.chat.registry.Protocol.*;
+import io.vertx.core.Vertx;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by Robin on 2016-01-04.
+ * <p>
+ * Measures unpacking and applying connector events, from frame bytes to registry update.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventHandlerBenchmark {
+    private Vertx vertx;
+    private RegistryService service;
+    private Connector connector = new Connector("connector");
+    private byte[] populated;
+    private byte[] depleted;
+    private byte[] full;
+    private byte[] ready;
+    private byte[] batch;
+
+    @Setup
+    public void setUp() {
+        vertx = Vertx.vertx();
+        service = new RegistryService();
+        service.init(vertx, vertx.getOrCreateContext());
+
+        dispatch(Serializer.pack(new ServerEvent("server", ServerEvent.ServerStatus.UP)
+                .setIp("localhost").setPort(6767)).getBytes());
+
+        populated = Serializer.pack(new RoomEvent("server", "room", RoomEvent.RoomStatus.POPULATED)).getBytes();
+        depleted = Serializer.pack(new RoomEvent("server", "room", RoomEvent.RoomStatus.DEPLETED)).getBytes();
+        full = Serializer.pack(new ServerEvent("server", ServerEvent.ServerStatus.FULL)).getBytes();
+        ready = Serializer.pack(new ServerEvent("server", ServerEvent.ServerStatus.READY)).getBytes();
+
+        EventBatch events = new EventBatch();
+
+        for (int i = 0; i < 100; i++)
+            events.add(new RoomEvent("server", "room." + i, RoomEvent.RoomStatus.POPULATED));
+
+        batch = Serializer.pack(events).getBytes();
+    }
+
+    @TearDown
+    public void tearDown() {
+        vertx.close();
+    }
+
+    @Benchmark
+    public void roomEvents() {
+        dispatch(populated);
+        dispatch(depleted);
+    }
+
+    @Benchmark
+    public void serverEvents() {
+        dispatch(full);
+        dispatch(ready);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(100)
+    public void batchOfRoomEvents() {
+        dispatch(batch);
+    }
+
+    private void dispatch(byte[] frame) {
+        Packet packet = service.unpackEvent(frame);
+        service.getEventHandler(packet.getAction()).handle(packet.getMessage(), connector, service);
+    }
+}
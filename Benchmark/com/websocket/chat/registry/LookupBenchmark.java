@@ -0,0 +1,98 @@
+package com.websocket.chat.registry;
+
+import com.websocket.chat.registry.Protocol.Lookup;
+import com.websocket.chat.registry.Protocol.RoomEvent;
+import com.websocket.chat.registry.Protocol.Serializer;
+import com.websocket.chat.registry.Protocol.ServerEvent;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.WebSocket;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by Robin on 2016-01-04.
+ * <p>
+ * Measures the round trip of a lookup over a WebSocket to an in-process registry,
+ * and of a storm of lookups for the same room.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {
+        "-Dregistry.lookup.socket.rate=100000000", "-Dregistry.lookup.socket.burst=100000000",
+        "-Dregistry.lookup.source.rate=100000000", "-Dregistry.lookup.source.burst=100000000"})
+public class LookupBenchmark {
+    private static final int STORM = 100;
+    private Vertx vertx;
+    private WebSocket client;
+    private String lookup = Serializer.pack(new Lookup("room"));
+    private Buffer lookupBinary = Buffer.buffer(Serializer.packBinary(new Lookup("room")));
+    private volatile CompletableFuture<Buffer> response;
+    private volatile int waiting;
+
+    @Setup
+    public void setUp() throws Exception {
+        vertx = Vertx.vertx();
+
+        CompletableFuture<Void> deployed = new CompletableFuture<>();
+        vertx.deployVerticle(new RegistryService(), new DeploymentOptions().setWorker(true), registry ->
+                vertx.deployVerticle(LookupService.class.getName(),
+                        new DeploymentOptions().setInstances(Configuration.LOOKUP_INSTANCES),
+                        lookup -> deployed.complete(null)));
+        deployed.get(10, TimeUnit.SECONDS);
+
+        CompletableFuture<WebSocket> connector = new CompletableFuture<>();
+        vertx.createHttpClient().websocket(Configuration.CONNECTOR_PORT, "localhost", "/", connector::complete);
+        connector.get(10, TimeUnit.SECONDS).writeFinalTextFrame(Serializer.pack(
+                new ServerEvent("server", ServerEvent.ServerStatus.UP).setIp("localhost").setPort(6767)));
+        connector.get().writeFinalTextFrame(Serializer.pack(
+                new RoomEvent("server", "room", RoomEvent.RoomStatus.POPULATED)));
+
+        CompletableFuture<WebSocket> connected = new CompletableFuture<>();
+        vertx.createHttpClient().websocket(Configuration.CLIENT_PORT, "localhost", "/", connected::complete);
+        client = connected.get(10, TimeUnit.SECONDS);
+        client.handler(data -> {
+            if (--waiting <= 0)
+                response.complete(data);
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        vertx.close();
+    }
+
+    @Benchmark
+    public Buffer lookupRoundTrip() throws Exception {
+        response = new CompletableFuture<>();
+        waiting = 1;
+        client.writeFinalTextFrame(lookup);
+        return response.get(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public Buffer lookupRoundTripBinary() throws Exception {
+        response = new CompletableFuture<>();
+        waiting = 1;
+        client.writeFinalBinaryFrame(lookupBinary);
+        return response.get(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STORM)
+    public Buffer lookupStorm() throws Exception {
+        response = new CompletableFuture<>();
+        waiting = STORM;
+
+        for (int i = 0; i < STORM; i++)
+            client.writeFinalTextFrame(lookup);
+
+        return response.get(10, TimeUnit.SECONDS);
+    }
+}
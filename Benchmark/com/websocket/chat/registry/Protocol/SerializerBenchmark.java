@@ -0,0 +1,156 @@
+package com.websocket.chat.registry.Protocol;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.websocket.chat.registry.Model.Room;
+import com.websocket.chat.registry.Model.Server;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by Robin on 2015-12-29.
+ * <p>
+ * Compares the shared readers/writers in the Serializer against
+ * creating a new ObjectMapper for every message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark {
+    private Lookup lookup = new Lookup("room");
+    private Server indexed = new Server("server.1", "localhost", 6767);
+    private Index index = new Index(indexed);
+    private RoomEvent room = new RoomEvent("server.1", "room", RoomEvent.RoomStatus.POPULATED);
+    private ServerEvent server = new ServerEvent("server.1", ServerEvent.ServerStatus.UP)
+            .setIp("localhost").setPort(6767);
+    private String lookupJson = Serializer.pack(lookup);
+    private String indexJson = Serializer.pack(index);
+    private String roomJson = Serializer.pack(room);
+    private String serverJson = Serializer.pack(server);
+    private byte[] roomBytes = roomJson.getBytes();
+    private Map<String, Class> formats = new HashMap<>();
+    private ServerTreeLog tree;
+
+    @Setup
+    public void setUp() {
+        formats.put(RoomEvent.ACTION, RoomEvent.class);
+        formats.put(ServerEvent.ACTION, ServerEvent.class);
+
+        Map<String, Server> servers = new HashMap<>();
+
+        for (int i = 0; i < 10; i++) {
+            Server server = new Server("server." + i, "localhost", 6767 + i);
+
+            for (int k = 0; k < 10; k++)
+                server.getRooms().put("room." + k, new Room("room." + k));
+
+            servers.put(server.getName(), server);
+        }
+        tree = new ServerTreeLog(servers);
+    }
+
+    @Benchmark
+    public Object unpackLookup() {
+        return Serializer.unpack(lookupJson, Lookup.class);
+    }
+
+    @Benchmark
+    public Object unpackLookupLegacy() throws Exception {
+        return legacyUnpack(lookupJson, Lookup.class);
+    }
+
+    @Benchmark
+    public Object unpackRoomEvent() {
+        return Serializer.unpack(roomJson, RoomEvent.class);
+    }
+
+    @Benchmark
+    public Object unpackRoomEventLegacy() throws Exception {
+        return legacyUnpack(roomJson, RoomEvent.class);
+    }
+
+    @Benchmark
+    public Object dispatchRoomEvent() {
+        return Serializer.unpack(roomBytes, formats).getMessage();
+    }
+
+    @Benchmark
+    public Object dispatchRoomEventTwoPass() {
+        Packet packet = (Packet) Serializer.unpack(new String(roomBytes), Packet.class);
+        return Serializer.unpack(new String(roomBytes), formats.get(packet.getAction()));
+    }
+
+    @Benchmark
+    public Object unpackServerEvent() {
+        return Serializer.unpack(serverJson, ServerEvent.class);
+    }
+
+    @Benchmark
+    public Object unpackServerEventLegacy() throws Exception {
+        return legacyUnpack(serverJson, ServerEvent.class);
+    }
+
+    @Benchmark
+    public Object unpackIndex() {
+        return Serializer.unpack(indexJson, Index.class);
+    }
+
+    @Benchmark
+    public Object unpackIndexLegacy() throws Exception {
+        return legacyUnpack(indexJson, Index.class);
+    }
+
+    @Benchmark
+    public String packIndex() {
+        return Serializer.pack(index);
+    }
+
+    @Benchmark
+    public String packIndexEncoded() {
+        return Index.encoded(indexed).getText();
+    }
+
+    @Benchmark
+    public String packIndexLegacy() throws Exception {
+        return legacyPack(index);
+    }
+
+    @Benchmark
+    public String packIOLogger() {
+        return Serializer.pack(new IOLogger(10, 10));
+    }
+
+    @Benchmark
+    public String packIOLoggerLegacy() throws Exception {
+        return legacyPack(new IOLogger(10, 10));
+    }
+
+    @Benchmark
+    public String packServerTreeLog() {
+        return Serializer.pack(tree);
+    }
+
+    @Benchmark
+    public String packServerTreeLogLegacy() throws Exception {
+        return legacyPack(tree);
+    }
+
+    private static String legacyPack(Object object) throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        return mapper.writeValueAsString(object);
+    }
+
+    private static Object legacyUnpack(String json, Class format) throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        return mapper.readValue(json, format);
+    }
+}
@@ -0,0 +1,87 @@
+package com.websocket.chat.registry.Protocol;
+
+import com.websocket.chat.registry.Model.Server;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by Robin on 2016-01-10.
+ * <p>
+ * Compares JSON text frames against Smile binary frames for the messages
+ * on the connector and lookup sockets, from frame bytes to message and back.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+    private Index index = new Index(new Server("server.1", "localhost", 6767));
+    private byte[] lookupJson = json(new Lookup("room"));
+    private byte[] lookupSmile = Serializer.packBinary(new Lookup("room"));
+    private byte[] roomJson = json(new RoomEvent("server.1", "room", RoomEvent.RoomStatus.POPULATED));
+    private byte[] roomSmile = Serializer.packBinary(new RoomEvent("server.1", "room", RoomEvent.RoomStatus.POPULATED));
+    private byte[] serverJson = json(serverEvent());
+    private byte[] serverSmile = Serializer.packBinary(serverEvent());
+    private Map<String, Class> formats = new HashMap<>();
+
+    @Setup
+    public void setUp() {
+        formats.put(Lookup.ACTION, Lookup.class);
+        formats.put(RoomEvent.ACTION, RoomEvent.class);
+        formats.put(ServerEvent.ACTION, ServerEvent.class);
+    }
+
+    private static ServerEvent serverEvent() {
+        return new ServerEvent("server.1", ServerEvent.ServerStatus.UP).setIp("localhost").setPort(6767);
+    }
+
+    private static byte[] json(Object object) {
+        return Serializer.pack(object).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Object unpackLookupJson() {
+        return Serializer.unpack(lookupJson, formats).getMessage();
+    }
+
+    @Benchmark
+    public Object unpackLookupSmile() {
+        return Serializer.unpack(lookupSmile, formats).getMessage();
+    }
+
+    @Benchmark
+    public byte[] packIndexJson() {
+        return json(index);
+    }
+
+    @Benchmark
+    public byte[] packIndexSmile() {
+        return Serializer.packBinary(index);
+    }
+
+    @Benchmark
+    public Object unpackRoomEventJson() {
+        return Serializer.unpack(roomJson, formats).getMessage();
+    }
+
+    @Benchmark
+    public Object unpackRoomEventSmile() {
+        return Serializer.unpack(roomSmile, formats).getMessage();
+    }
+
+    @Benchmark
+    public Object unpackServerEventJson() {
+        return Serializer.unpack(serverJson, formats).getMessage();
+    }
+
+    @Benchmark
+    public Object unpackServerEventSmile() {
+        return Serializer.unpack(serverSmile, formats).getMessage();
+    }
+}
@@ -0,0 +1,59 @@
+package com.websocket.chat.registry;
+
+import com.websocket.chat.registry.Exception.NoServersFound;
+import com.websocket.chat.registry.Model.Room;
+import com.websocket.chat.registry.Model.Server;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by Robin on 2016-01-04.
+ * <p>
+ * Measures server selection with the rooms spread over the servers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistryBenchmark {
+    private static final int ROOMS = 10000;
+
+    @Param({"10", "100", "1000"})
+    private int servers;
+
+    private Registry registry;
+    private String[] rooms = new String[ROOMS];
+
+    @Setup
+    public void setUp() {
+        registry = new Registry();
+
+        for (int i = 0; i < servers; i++)
+            registry.addServer(new Server("server." + i, "localhost", 6767));
+
+        for (int i = 0; i < ROOMS; i++) {
+            rooms[i] = "room." + i;
+            registry.addRoom("server." + (i % servers), new Room(rooms[i]));
+        }
+    }
+
+    @Benchmark
+    public Server lookupHostedRoom() throws NoServersFound {
+        return registry.getReadyServer(rooms[ThreadLocalRandom.current().nextInt(ROOMS)]);
+    }
+
+    @Benchmark
+    public Server lookupNewRoom() throws NoServersFound {
+        return registry.getReadyServer("new." + ThreadLocalRandom.current().nextInt(ROOMS));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Server lookupHostedRoomConcurrent() throws NoServersFound {
+        return registry.getReadyServer(rooms[ThreadLocalRandom.current().nextInt(ROOMS)]);
+    }
+}
@@ -0,0 +1,130 @@
+package com.websocket.chat.registry.Selection;
+
+import com.websocket.chat.registry.Exception.NoServersFound;
+import com.websocket.chat.registry.Model.Room;
+import com.websocket.chat.registry.Model.Server;
+import com.websocket.chat.registry.Registry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by Robin on 2016-01-07.
+ * <p>
+ * Replays a lookup trace against each selection strategy. The trace is read
+ * from the file in the registry.trace property with a room name per line,
+ * otherwise a trace is generated with the room popularity following a zipf
+ * distribution.
+ * <p>
+ * Besides the time per lookup the distribution of the whole trace is printed,
+ * the spread of lookups over the servers (coefficient of variation and max
+ * over mean) and the mean number of servers each room was sent to.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SelectionBenchmark {
+    private static final int ROOMS = 10000;
+    private static final int LOOKUPS = 100000;
+    private static final int HOSTED = 1000;
+    private static final long SEED = 42;
+
+    @Param({AffinityStrategy.NAME, ConsistentHashStrategy.NAME, LeastLoadedStrategy.NAME, RoundRobinStrategy.NAME})
+    private String strategy;
+
+    @Param({"100"})
+    private int servers;
+
+    private Registry registry;
+    private String[] trace;
+    private int next = 0;
+
+    @Setup
+    public void setUp() throws IOException {
+        trace = loadTrace();
+        registry = createRegistry();
+    }
+
+    @Benchmark
+    public Server replay() throws NoServersFound {
+        String room = trace[next];
+        next = (next + 1 == trace.length) ? 0 : next + 1;
+        return registry.getReadyServer(room);
+    }
+
+    @TearDown
+    public void distribution() throws NoServersFound {
+        Registry replayed = createRegistry();
+        Map<String, Integer> lookups = new HashMap<>();
+        Map<String, Set<String>> spread = new HashMap<>();
+
+        for (String room : trace) {
+            Server server = replayed.getReadyServer(room);
+            lookups.merge(server.getName(), 1, Integer::sum);
+            spread.computeIfAbsent(room, key -> new HashSet<>()).add(server.getName());
+        }
+
+        double mean = (double) trace.length / servers;
+        double variance = 0;
+        int max = 0;
+
+        for (int i = 0; i < servers; i++) {
+            int count = lookups.getOrDefault("server." + i, 0);
+            variance += (count - mean) * (count - mean) / servers;
+            max = Math.max(max, count);
+        }
+
+        double rooms = spread.values().stream().mapToInt(Set::size).average().orElse(0);
+
+        System.out.println(String.format("%n%s: lookups cv %.3f, max/mean %.2f, servers per room %.2f",
+                strategy, Math.sqrt(variance) / mean, max / mean, rooms));
+    }
+
+    private Registry createRegistry() {
+        Registry registry = new Registry();
+        Random random = new Random(SEED);
+        registry.setStrategy(Strategies.create(strategy));
+
+        for (int i = 0; i < servers; i++) {
+            registry.addServer(new Server("server." + i, "localhost", 6767));
+            registry.setLoad("server." + i, random.nextInt(100), 100, null);
+        }
+
+        for (int i = 0; i < HOSTED; i++)
+            registry.addRoom("server." + random.nextInt(servers), new Room("room." + i));
+
+        return registry;
+    }
+
+    private static String[] loadTrace() throws IOException {
+        String file = System.getProperty("registry.trace");
+
+        if (file != null) {
+            return Files.readAllLines(Paths.get(file)).toArray(new String[0]);
+        } else {
+            Random random = new Random(SEED);
+            double[] cumulative = new double[ROOMS];
+            double sum = 0;
+
+            for (int i = 0; i < ROOMS; i++) {
+                sum += 1.0 / (i + 1);
+                cumulative[i] = sum;
+            }
+
+            String[] trace = new String[LOOKUPS];
+
+            for (int i = 0; i < LOOKUPS; i++) {
+                int room = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+                trace[i] = "room." + ((room < 0) ? -room - 1 : room);
+            }
+            return trace;
+        }
+    }
+}
@@ -1,8 +1,15 @@
 package com.websocket.chat.registry;
 
+import com.hazelcast.config.Config;
+import com.websocket.chat.registry.Model.Room;
+import com.websocket.chat.registry.Model.Server;
 import com.websocket.chat.registry.Protocol.*;
+import com.websocket.chat.registry.Replication.Replica;
+import com.websocket.chat.registry.Replication.Replicator;
+import io.vertx.core.Context;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.WebSocket;
 import io.vertx.ext.unit.Async;
@@ -10,6 +17,7 @@ import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.Repeat;
 import io.vertx.ext.unit.junit.RepeatRule;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.spi.cluster.hazelcast.HazelcastClusterManager;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
@@ -17,6 +25,14 @@ import org.junit.Test;
 import org.junit.rules.Timeout;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
 
 /**
  * Created by Robin on 2015-12-18.
@@ -26,6 +42,7 @@ import org.junit.runner.RunWith;
 
 @RunWith(VertxUnitRunner.class)
 public class RegistryIntegration {
+    private Map<WebSocket, Queue<Runnable>> connectors;
     private Vertx vertx;
 
     @Rule
@@ -37,6 +54,7 @@ public class RegistryIntegration {
     @Before
     public void setUp(TestContext context) {
         vertx = Vertx.vertx();
+        connectors = new HashMap<>();
     }
 
     @After
@@ -92,6 +110,53 @@ public class RegistryIntegration {
     }
 
 
+    @Test
+    public void shouldAnswerBinaryLookupWithBinary(TestContext context) {
+        final Async async = context.async();
+        final CountDown counter = new CountDown(2);
+
+        getConnectorSocket(connector -> {
+
+            getServiceClientSocket(client -> {
+                client.frameHandler(frame -> {
+                    Index index = (Index) Serializer.unpack(frame.binaryData().getBytes(), Index.class);
+
+                    context.assertTrue(frame.isBinary());
+                    context.assertEquals("registry.tester.1", index.getName());
+
+                    if (counter.down() == 0) {
+                        unregister(connector.textHandlerID(), 1);
+                        async.complete();
+                    }
+                });
+
+                for (int i = 0; i < counter.left(); i++)
+                    client.writeBinaryMessage(Buffer.buffer(Serializer.packBinary(new Lookup("room"))));
+            });
+            connector.writeBinaryMessage(Buffer.buffer(Serializer.packBinary(serverEvent(ServerEvent.ServerStatus.UP, 1))));
+        });
+    }
+
+    @Test
+    public void shouldRejectLookupsOverBudget(TestContext context) {
+        final Async async = context.async();
+        List<String> rooms = new ArrayList<>();
+
+        for (int i = 0; i <= Configuration.LOOKUP_SOCKET_BURST; i++)
+            rooms.add("room." + i);
+
+        getServiceClientSocket(client -> {
+            client.handler(data -> {
+                Rejection rejection = (Rejection) Serializer.unpack(data.toString(), Rejection.class);
+
+                context.assertEquals(Rejection.ACTION, rejection.getHeader().getAction());
+                context.assertEquals(Configuration.LOOKUP_RETRY, rejection.getRetry());
+                async.complete();
+            });
+            sendBus(client.textHandlerID(), new LookupBatch(rooms));
+        });
+    }
+
     private ServerEvent serverEvent(ServerEvent.ServerStatus status, Integer id) {
         return new ServerEvent("registry.tester." + id, status);
     }
@@ -100,6 +165,26 @@ public class RegistryIntegration {
         sendBus(address, serverEvent(ServerEvent.ServerStatus.DOWN, id));
     }
 
+    private void getClusteredVertx(TestContext context, Handler<Vertx> handler) {
+        Config config = new Config();
+        config.setProperty("hazelcast.logging.type", "none");
+        config.setProperty("hazelcast.health.monitoring.level", "OFF");
+        config.setProperty("hazelcast.wait.seconds.before.join", "0");
+        config.getNetworkConfig().getJoin().getMulticastConfig().setEnabled(false);
+        config.getNetworkConfig().getJoin().getTcpIpConfig().setEnabled(true)
+                .setConnectionTimeoutSeconds(5).addMember("127.0.0.1:5701");
+        config.getNetworkConfig().getInterfaces().setEnabled(true).addInterface("127.0.0.1");
+
+        VertxOptions options = new VertxOptions()
+                .setClusterManager(new HazelcastClusterManager(config))
+                .setClusterHost("127.0.0.1");
+
+        Vertx.clusteredVertx(options, clustered -> {
+            context.assertTrue(clustered.succeeded());
+            handler.handle(clustered.result());
+        });
+    }
+
     @Test
     public void shouldNotBalanceToFull(TestContext context) {
         final Async async = context.async();
@@ -167,11 +252,152 @@ public class RegistryIntegration {
         });
     }
 
+    @Test
+    public void shouldLookupBatchOfRooms(TestContext context) {
+        final Async async = context.async();
+
+        getConnectorSocket(connector -> {
+
+            getServiceClientSocket(client -> {
+                client.handler(data -> {
+                    IndexBatch batch = (IndexBatch) Serializer.unpack(data.toString(), IndexBatch.class);
+
+                    context.assertEquals(3, batch.getIndexes().size());
+                    context.assertEquals("registry.tester.2", batch.getIndexes().get(0).getName());
+                    context.assertEquals("registry.tester.1", batch.getIndexes().get(1).getName());
+                    context.assertEquals("registry.tester.2", batch.getIndexes().get(2).getName());
+                    unregister(connector.textHandlerID(), 2);
+                    unregister(connector.textHandlerID(), 1);
+                    async.complete();
+                });
+                sendBus(client.textHandlerID(), new LookupBatch(Arrays.asList("room.2", "room.1", "room.2")));
+            });
+            sendBus(connector.textHandlerID(), serverEvent(ServerEvent.ServerStatus.UP, 1));
+            sendBus(connector.textHandlerID(), serverEvent(ServerEvent.ServerStatus.UP, 2));
+            sendBus(connector.textHandlerID(), roomEvent(RoomEvent.RoomStatus.POPULATED, "room.1", 1));
+            sendBus(connector.textHandlerID(), roomEvent(RoomEvent.RoomStatus.POPULATED, "room.2", 2));
+        });
+    }
+
+    @Test
+    public void shouldApplyEventBatch(TestContext context) {
+        final Async async = context.async();
+
+        getConnectorSocket(connector -> {
+
+            getServiceClientSocket(client -> {
+                client.handler(data -> {
+                    Index index = (Index) Serializer.unpack(data.toString(), Index.class);
+                    context.assertEquals(index.getName(), "registry.tester.2");
+                    unregister(connector.textHandlerID(), 2);
+                    unregister(connector.textHandlerID(), 1);
+                    async.complete();
+                });
+                sendBus(client.textHandlerID(), new Lookup("room"));
+            });
+            sendBus(connector.textHandlerID(), new EventBatch()
+                    .add(serverEvent(ServerEvent.ServerStatus.UP, 1))
+                    .add(serverEvent(ServerEvent.ServerStatus.UP, 2))
+                    .add(roomEvent(RoomEvent.RoomStatus.POPULATED, "room", 1))
+                    .add(roomEvent(RoomEvent.RoomStatus.POPULATED, "room", 2))
+                    .add(roomEvent(RoomEvent.RoomStatus.DEPLETED, "room", 1)));
+        });
+    }
+
+    @Test
+    public void shouldUploadLogMessages(TestContext context) {
+        final Async async = context.async();
+        final CountDown counter = new CountDown(100);
+
+        vertx.createHttpServer().websocketHandler(upload -> {
+            upload.handler(data -> {
+                if (data.toString().equals("log.message") && counter.down() == 0)
+                    async.complete();
+            });
+        }).listen(Configuration.LOGGER_PORT, listening -> {
+            vertx.deployVerticle(new Logger(), deployed -> {
+                for (int i = 0; i < counter.left(); i++)
+                    vertx.eventBus().send(Configuration.BUS_LOGGING, "log.message");
+            });
+        });
+    }
+
+    @Test
+    public void shouldKeepServersOfReconnectedConnector(TestContext context) {
+        final Async async = context.async();
+
+        getConnectorSocket(first -> {
+            first.handler(data -> {
+                first.writeFinalTextFrame(Serializer.pack(serverEvent(ServerEvent.ServerStatus.UP, 3)));
+                first.close();
+
+                getConnectorSocket(second -> {
+                    second.handler(resumed -> {
+                        ConnectorState state = (ConnectorState) Serializer.unpack(resumed.toString(), ConnectorState.class);
+
+                        context.assertEquals(1, state.getServers().size());
+                        context.assertEquals("registry.tester.3", state.getServers().get(0).getName());
+                        unregister(second.textHandlerID(), 3);
+                        async.complete();
+                    });
+                    sendBus(second.textHandlerID(), new ConnectorEvent("registry.connector"));
+                });
+            });
+            sendBus(first.textHandlerID(), new ConnectorEvent("registry.connector"));
+        });
+    }
+
     private RoomEvent roomEvent(RoomEvent.RoomStatus status, String room, Integer id) {
         return new RoomEvent("registry.tester." + id, room, status);
     }
 
 
+    @Test
+    public void shouldReplicateToClusteredReplica(TestContext context) {
+        final Async async = context.async();
+        Registry primary = new Registry();
+        Registry copy = new Registry();
+
+        getClusteredVertx(context, first -> {
+            Context writer = first.getOrCreateContext();
+
+            writer.runOnContext(ready -> {
+                primary.addListener(new Replicator(first, primary));
+                primary.addServer(new Server("replicated.1", "localhost", 6767));
+                primary.addRoom("replicated.1", new Room("room"));
+            });
+
+            getClusteredVertx(context, second -> {
+                Replica replica = new Replica(second, copy);
+                second.runOnContext(start -> replica.start());
+
+                vertx.setPeriodic(50, synced -> {
+                    if (replica.getSynced() > 0) {
+                        vertx.cancelTimer(synced);
+                        context.assertTrue(copy.getServers().get("replicated.1").getRooms().containsKey("room"));
+
+                        writer.runOnContext(change -> {
+                            primary.addServer(new Server("replicated.2", "localhost", 6768));
+                            primary.setFull("replicated.2", true);
+                            primary.removeRoom("replicated.1", "room");
+                        });
+
+                        vertx.setPeriodic(50, applied -> {
+                            if (replica.getSequence() == 5) {
+                                context.assertTrue(copy.getServers().get("replicated.2").getFull());
+                                context.assertTrue(copy.getServers().get("replicated.1").getRooms().isEmpty());
+                                context.assertEquals(1L, replica.getSynced());
+                                first.close();
+                                second.close();
+                                async.complete();
+                            }
+                        });
+                    }
+                });
+            });
+        });
+    }
+
     @Test
     /**
      * Hard to test as the first available server is selected when more than one room is populated.
@@ -226,18 +452,51 @@ public class RegistryIntegration {
         });
     }
 
+    /**
+     * The registry replies to a ConnectorEvent with the ConnectorState of the
+     * connector, the replies are used to tell when earlier events are applied.
+     */
     public void getConnectorSocket(Handler<WebSocket> handler) {
-        vertx.createHttpClient().websocket(Configuration.CONNECTOR_PORT, "localhost", "/", handler);
+        vertx.createHttpClient().websocket(Configuration.CONNECTOR_PORT, "localhost", "/", event -> {
+            Queue<Runnable> waiting = new ArrayDeque<>();
+            connectors.put(event, waiting);
+
+            event.frameHandler(frame -> {
+                ConnectorState state = (ConnectorState) Serializer.unpack(frame.textData(), ConnectorState.class);
+
+                if (ConnectorState.ACTION.equals(state.getHeader().getAction()) && !waiting.isEmpty())
+                    waiting.poll().run();
+            });
+            event.closeHandler(closed -> connectors.remove(event));
+            handler.handle(event);
+        });
     }
 
 
     public void getServiceClientBuffer(Handler<Buffer> handler) {
-        vertx.createHttpClient().websocket(Configuration.CLIENT_PORT, "localhost", "/", event -> {
+        getServiceClientSocket(event -> {
             event.handler(handler);
         });
     }
 
+    /**
+     * Connector events are applied by the registry writer on its own thread, so
+     * a lookup could overtake the events sent ahead of it. The client connects
+     * when the writer has replied to a ConnectorEvent sent after the events
+     * already sent by each open connector.
+     */
     public void getServiceClientSocket(Handler<WebSocket> handler) {
-        vertx.createHttpClient().websocket(Configuration.CLIENT_PORT, "localhost", "/", handler);
+        vertx.runOnContext(sent -> applied(new ArrayList<>(connectors.keySet()), () ->
+                vertx.createHttpClient().websocket(Configuration.CLIENT_PORT, "localhost", "/", handler)));
+    }
+
+    private void applied(List<WebSocket> pending, Runnable then) {
+        if (pending.isEmpty()) {
+            then.run();
+        } else {
+            WebSocket connector = pending.remove(0);
+            connectors.get(connector).add(() -> applied(pending, then));
+            sendBus(connector.textHandlerID(), new ConnectorEvent());
+        }
     }
 }
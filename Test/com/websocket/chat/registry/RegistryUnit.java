@@ -1,8 +1,38 @@
 package com.websocket.chat.registry;
 
+import com.websocket.chat.registry.Admission.Admission;
+import com.websocket.chat.registry.Admission.Quota;
+import com.websocket.chat.registry.Admission.TokenBucket;
 import com.websocket.chat.registry.Exception.NoServersFound;
+import com.websocket.chat.registry.Metrics.Metrics;
+import com.websocket.chat.registry.Model.AffinityCache;
+import com.websocket.chat.registry.Model.Connector;
+import com.websocket.chat.registry.Model.HashRing;
 import com.websocket.chat.registry.Model.Room;
 import com.websocket.chat.registry.Model.Server;
+import com.websocket.chat.registry.Model.TimerWheel;
+import com.websocket.chat.registry.Protocol.Encoded;
+import com.websocket.chat.registry.Protocol.EventBatch;
+import com.websocket.chat.registry.Protocol.IOLogger;
+import com.websocket.chat.registry.Protocol.Index;
+import com.websocket.chat.registry.Protocol.Lookup;
+import com.websocket.chat.registry.Protocol.LookupBatch;
+import com.websocket.chat.registry.Protocol.Packet;
+import com.websocket.chat.registry.Protocol.Percentiles;
+import com.websocket.chat.registry.Protocol.RoomEvent;
+import com.websocket.chat.registry.Protocol.Serializer;
+import com.websocket.chat.registry.Protocol.ServerEvent;
+import com.websocket.chat.registry.Protocol.ServerTreeDelta;
+import com.websocket.chat.registry.Selection.ConsistentHashStrategy;
+import com.websocket.chat.registry.Selection.LeastLoadedStrategy;
+import com.websocket.chat.registry.Selection.RoundRobinStrategy;
+import com.websocket.chat.registry.Selection.Strategies;
+import com.websocket.chat.registry.Storage.Journal;
+import com.websocket.chat.registry.Storage.MutationLog;
+import com.websocket.chat.registry.Storage.Snapshot;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.RepeatRule;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
@@ -10,6 +40,18 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * Created by Robin on 2015-12-21.
  * <p>
@@ -107,4 +149,764 @@ public class RegistryUnit {
                 throw new Exception("Server with room loaded not preferred.");
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldOnlySelectReadyServers(TestContext context) throws NoServersFound {
+        RegistryService registry = new RegistryService();
+
+        for (int i = 0; i < 100; i++) {
+            registry.addServer(new Server("server." + i, "", 80));
+            registry.setFull("server." + i, i != 50);
+        }
+        registry.removeServer("server.49");
+
+        for (int i = 0; i < 100; i++)
+            context.assertEquals("server.50", registry.getReadyServer("room." + i).getName());
+    }
+
+    @Test
+    public void shouldNotPreferFullServerWithRoom(TestContext context) throws NoServersFound {
+        RegistryService registry = new RegistryService();
+        registry.addServer(new Server("full", "", 80));
+        registry.addServer(new Server("ready", "", 80));
+        registry.addRoom("full", new Room("room"));
+        registry.setFull("full", true);
+
+        context.assertEquals("ready", registry.getReadyServer("room").getName());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyPolled(TestContext context) {
+        AffinityCache cache = new AffinityCache(2, 0);
+        cache.put("first", "server");
+        cache.put("second", "server");
+        cache.get("first");
+        cache.put("third", "server");
+
+        context.assertEquals(2, cache.size());
+        context.assertEquals(1L, cache.getEvictions());
+        context.assertNull(cache.get("second"));
+        context.assertEquals("server", cache.get("first"));
+    }
+
+    @Test
+    public void shouldInvalidatePolledForServer(TestContext context) {
+        AffinityCache cache = new AffinityCache(10, 0);
+        cache.put("first", "server");
+        cache.put("second", "server");
+        cache.put("third", "other");
+        cache.invalidate("server");
+
+        context.assertNull(cache.get("first"));
+        context.assertNull(cache.get("second"));
+        context.assertEquals("other", cache.get("third"));
+    }
+
+    @Test
+    public void shouldExpirePolled(TestContext context) throws InterruptedException {
+        AffinityCache cache = new AffinityCache(10, 1);
+        cache.put("room", "server");
+        Thread.sleep(5);
+
+        context.assertNull(cache.get("room"));
+        context.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void shouldTrackChangesSinceLastLog(TestContext context) throws NoServersFound {
+        Registry registry = new Registry();
+        registry.addServer(new Server("first", "", 80));
+        registry.addServer(new Server("second", "", 80));
+        registry.getChanges().clear();
+
+        registry.addRoom("first", new Room("room"));
+        registry.getReadyServer("room");
+        registry.getReadyServer("room");
+        registry.setFull("second", true);
+        registry.removeServer("second");
+        ServerTreeDelta delta = registry.getChanges().drain();
+
+        context.assertTrue(delta.getAdded().isEmpty());
+        context.assertEquals(Collections.singletonList("second"), delta.getRemoved());
+        context.assertTrue(delta.getRoomsAdded().get("first").contains("room"));
+        context.assertTrue(delta.getFull().isEmpty());
+        context.assertEquals(2, delta.getHits().get("first").get("room"));
+        context.assertTrue(registry.getChanges().drain().isEmpty());
+    }
+
+    @Test
+    public void shouldTrackStateAndLoadSinceLastLog(TestContext context) {
+        Registry registry = new Registry();
+        registry.addServer(new Server("server", "localhost", 8080));
+        registry.addServer(new Server("other", "localhost", 8081));
+        registry.getChanges().clear();
+
+        registry.setAlive("server", false);
+        registry.setOwner("server", "connector");
+        registry.setLoad("server", 10, null, 0.5);
+        registry.setLoad("server", null, 100, null);
+        registry.setAlive("other", false);
+        registry.removeServer("other");
+        ServerTreeDelta delta = registry.getChanges().drain();
+
+        context.assertFalse(delta.getAlive().get("server"));
+        context.assertEquals("connector", delta.getOwner().get("server"));
+        context.assertEquals(10, delta.getUsers().get("server"));
+        context.assertEquals(100, delta.getCapacity().get("server"));
+        context.assertEquals(0.5, delta.getCpu().get("server"));
+        context.assertFalse(delta.getAlive().containsKey("other"));
+        context.assertTrue(registry.getChanges().drain().isEmpty());
+    }
+
+    @Test
+    public void shouldCountHitsOfCoalescedLookups(TestContext context) throws NoServersFound {
+        Registry registry = new Registry();
+        registry.addServer(new Server("server", "", 80));
+        registry.addRoom("server", new Room("room"));
+        registry.getChanges().clear();
+
+        Server server = registry.getReadyServer("room");
+        registry.hit(server, "room", 3);
+
+        context.assertEquals(4, registry.getChanges().drain().getHits().get("server").get("room"));
+    }
+
+    @Test
+    public void shouldCoalesceLookupsForRoomInTick(TestContext context) {
+        Vertx vertx = Vertx.vertx();
+        Registry registry = new Registry();
+        registry.addServer(new Server("first", "", 80));
+        registry.addServer(new Server("second", "", 80));
+        registry.addRoom("first", new Room("room"));
+        registry.getChanges().clear();
+        RegistryService.getSharedMap(vertx).put(Configuration.REGISTRY_SHARED, registry);
+
+        Context tick = vertx.getOrCreateContext();
+        LookupService service = new LookupService();
+        service.init(vertx, tick);
+        Async async = context.async();
+
+        tick.runOnContext(lookups -> {
+            context.assertEquals("first", name(service.select("room")));
+            registry.addRoom("second", new Room("room"));
+            registry.hit(registry.getServer("second"), "room", 10);
+
+            for (int i = 0; i < 3; i++)
+                context.assertEquals("first", name(service.select("room")));
+
+            tick.runOnContext(ended -> {
+                context.assertEquals(4, registry.getChanges().drain().getHits().get("first").get("room"));
+                context.assertEquals("second", name(service.select("room")));
+                vertx.close(context.asyncAssertSuccess());
+                async.complete();
+            });
+        });
+    }
+
+    @Test
+    public void shouldNotCoalesceLookupsOfRoundRobin(TestContext context) {
+        Vertx vertx = Vertx.vertx();
+        Registry registry = new Registry();
+        registry.setStrategy(new RoundRobinStrategy());
+        registry.addServer(new Server("first", "", 80));
+        registry.addServer(new Server("second", "", 80));
+        RegistryService.getSharedMap(vertx).put(Configuration.REGISTRY_SHARED, registry);
+
+        Context tick = vertx.getOrCreateContext();
+        LookupService service = new LookupService();
+        service.init(vertx, tick);
+        Async async = context.async();
+
+        tick.runOnContext(lookups -> {
+            Set<String> selected = new HashSet<>();
+
+            for (int i = 0; i < 4; i++)
+                selected.add(name(service.select("room")));
+
+            context.assertEquals(2, selected.size());
+            vertx.close(context.asyncAssertSuccess());
+            async.complete();
+        });
+    }
+
+    private String name(Encoded index) {
+        return ((Index) Serializer.unpack(index.getText(), Index.class)).getName();
+    }
+
+    @Test
+    public void shouldUnpackPacketInSinglePass(TestContext context) {
+        Map<String, Class> formats = new HashMap<>();
+        formats.put(RoomEvent.ACTION, RoomEvent.class);
+
+        Packet packet = Serializer.unpack(
+                Serializer.pack(new RoomEvent("server", "room", RoomEvent.RoomStatus.POPULATED)).getBytes(), formats);
+
+        context.assertEquals(RoomEvent.ACTION, packet.getAction());
+        context.assertEquals("room", ((RoomEvent) packet.getMessage()).getRoom());
+        context.assertEquals(RoomEvent.RoomStatus.POPULATED, ((RoomEvent) packet.getMessage()).getStatus());
+    }
+
+    @Test
+    public void shouldUnpackPacketWithHeaderLast(TestContext context) {
+        Map<String, Class> formats = new HashMap<>();
+        formats.put(Lookup.ACTION, Lookup.class);
+
+        Packet packet = Serializer.unpack(
+                "{\"room\":\"the_room\",\"header\":{\"action\":\"registry.lookup\"}}".getBytes(), formats);
+
+        context.assertEquals(Lookup.ACTION, packet.getAction());
+        context.assertEquals("the_room", ((Lookup) packet.getMessage()).getRoom());
+    }
+
+    @Test
+    public void shouldUnpackBinaryPacket(TestContext context) {
+        Map<String, Class> formats = new HashMap<>();
+        formats.put(ServerEvent.ACTION, ServerEvent.class);
+        ServerEvent event = new ServerEvent("server", ServerEvent.ServerStatus.UP).setIp("localhost").setPort(6767);
+        byte[] binary = Serializer.packBinary(event);
+
+        context.assertTrue(Serializer.isBinary(binary));
+        context.assertFalse(Serializer.isBinary(Serializer.pack(event).getBytes()));
+        context.assertTrue(binary.length < Serializer.pack(event).getBytes().length);
+
+        Packet packet = Serializer.unpack(binary, formats);
+
+        context.assertEquals(ServerEvent.ACTION, packet.getAction());
+        context.assertEquals("localhost", ((ServerEvent) packet.getMessage()).getIp());
+        context.assertEquals(6767, ((ServerEvent) packet.getMessage()).getPort());
+    }
+
+    @Test
+    public void shouldCacheEncodedIndexUntilServerChanges(TestContext context) {
+        Server server = new Server("server", "localhost", 6767);
+        Encoded encoded = Index.encoded(server);
+
+        context.assertTrue(encoded == Index.encoded(server));
+        context.assertEquals(Serializer.pack(new Index(server)), encoded.getText());
+
+        server.setPort(6768);
+        Index index = (Index) Serializer.unpack(Index.encoded(server).getBinary().getBytes(), Index.class);
+
+        context.assertEquals(6768, index.getPort());
+        context.assertFalse(Serializer.pack(server).contains("index"));
+        context.assertTrue(((Index) Serializer.unpack(Index.FULL.getText(), Index.class)).getFull());
+    }
+
+    @Test
+    public void shouldNotBindUnknownAction(TestContext context) {
+        Packet packet = Serializer.unpack(Serializer.pack(new Lookup("room")).getBytes(), new HashMap<>());
+
+        context.assertEquals(Lookup.ACTION, packet.getAction());
+        context.assertNull(packet.getMessage());
+    }
+
+    @Test
+    public void shouldRestoreFromSnapshotAndJournal(TestContext context) throws IOException {
+        File directory = Files.createTempDirectory("registry").toFile();
+        File snapshot = new File(directory, "snapshot");
+        Registry registry = new Registry();
+        Server first = new Server("first", "localhost", 8080);
+        first.setOwner("connector");
+        registry.addServer(first);
+        registry.addRoom("first", new Room("room"));
+        registry.getServers().get("first").getRooms().get("room").setHits(5);
+        registry.getLastPolled().put("lobby", "first");
+        Snapshot.save(snapshot, 1, registry);
+
+        Journal journal = new Journal(new File(directory, "journal"), 65536, () -> {
+        });
+        journal.reset(1);
+        registry.addListener(journal);
+        registry.addServer(new Server("second", "localhost", 8081));
+        registry.addRoom("second", new Room("other"));
+        registry.setFull("first", true);
+        registry.removeRoom("first", "room");
+        journal.close();
+
+        Registry restored = new Registry();
+        journal = new Journal(new File(directory, "journal"), 65536, () -> {
+        });
+        context.assertEquals(1L, Snapshot.load(snapshot, restored));
+        context.assertEquals(1L, journal.getGeneration());
+        context.assertEquals(4, journal.replay(restored));
+        journal.close();
+
+        context.assertEquals(2, restored.getServers().size());
+        context.assertTrue(restored.getServers().get("first").getFull());
+        context.assertEquals("connector", restored.getServers().get("first").getOwner());
+        context.assertTrue(restored.getServers().get("first").getRooms().isEmpty());
+        context.assertTrue(restored.getServers().get("second").getRooms().containsKey("other"));
+        context.assertEquals(8081, restored.getServers().get("second").getPort());
+    }
+
+    @Test
+    public void shouldJournalNamesLargerThanRecordBuffer(TestContext context) throws IOException {
+        File directory = Files.createTempDirectory("registry").toFile();
+        String room = String.join("", Collections.nCopies(300000, "r"));
+        Registry registry = new Registry();
+        Registry replicated = new Registry();
+        Journal journal = new Journal(new File(directory, "journal"), 1024 * 1024, () -> {
+        });
+        journal.reset(1);
+        registry.addListener(journal);
+        registry.addListener(new MutationLog() {
+            @Override
+            protected void commit(ByteBuffer record) {
+                MutationLog.apply(record, replicated);
+            }
+        });
+        registry.addServer(new Server("server", "localhost", 8080));
+        registry.addRoom("server", new Room(room));
+        journal.close();
+
+        Registry restored = new Registry();
+        journal = new Journal(new File(directory, "journal"), 1024 * 1024, () -> {
+        });
+        context.assertEquals(2, journal.replay(restored));
+        journal.close();
+
+        context.assertTrue(restored.getServer("server").getRooms().containsKey(room));
+        context.assertTrue(replicated.getServer("server").getRooms().containsKey(room));
+    }
+
+    @Test
+    public void shouldRestoreHitsAndPolled(TestContext context) throws IOException, NoServersFound {
+        File snapshot = Files.createTempFile("registry", "snapshot").toFile();
+        Registry registry = new Registry();
+        registry.addServer(new Server("first", "localhost", 8080));
+        registry.addServer(new Server("second", "localhost", 8081));
+        registry.addRoom("first", new Room("room"));
+        registry.addRoom("second", new Room("room"));
+        registry.getServers().get("second").getRooms().get("room").setHits(10);
+        registry.getLastPolled().put("lobby", "first");
+        Snapshot.save(snapshot, 3, registry);
+
+        Registry restored = new Registry();
+        context.assertEquals(3L, Snapshot.load(snapshot, restored));
+        context.assertEquals("second", restored.getReadyServer("room").getName());
+        context.assertEquals("first", restored.getReadyServer("lobby").getName());
+    }
+
+    @Test
+    public void shouldPreferLeastLoadedServer(TestContext context) throws NoServersFound {
+        Registry registry = new Registry();
+        registry.addServer(new Server("busy", "localhost", 8080));
+        registry.addServer(new Server("idle", "localhost", 8081));
+        registry.setLoad("busy", 90, 100, null);
+        registry.setLoad("idle", 10, 100, 0.2);
+
+        for (int i = 0; i < 100; i++)
+            context.assertEquals("idle", registry.getReadyServer("room." + i).getName());
+
+        registry.setLoad("idle", null, null, 0.95);
+
+        context.assertEquals(10, registry.getServers().get("idle").getUsers());
+        context.assertEquals("busy", registry.getReadyServer("other").getName());
+    }
+
+    @Test
+    public void shouldApplyReportedLoad(TestContext context) throws NoServersFound {
+        RegistryService service = new RegistryService();
+        Connector connector = new Connector("connector");
+        EventHandler.HandleServer.apply(
+                new ServerEvent("loaded", ServerEvent.ServerStatus.UP).setUsers(5).setCapacity(10), connector, service);
+        EventHandler.HandleServer.apply(
+                new ServerEvent("loaded", ServerEvent.ServerStatus.LOAD).setCpu(0.75), connector, service);
+
+        Server server = service.getReadyServer("room");
+        context.assertEquals(5, server.getUsers());
+        context.assertEquals(0.75, server.getLoad());
+    }
+
+    @Test
+    public void shouldSwitchStrategyAtRuntime(TestContext context) throws NoServersFound {
+        Registry registry = new Registry();
+        registry.addServer(new Server("first", "localhost", 8080));
+        registry.addServer(new Server("second", "localhost", 8081));
+        registry.addRoom("first", new Room("room"));
+
+        context.assertEquals("first", registry.getReadyServer("room").getName());
+
+        registry.setStrategy(new RoundRobinStrategy());
+        Set<String> selected = new HashSet<>();
+
+        for (int i = 0; i < 4; i++)
+            selected.add(registry.getReadyServer("room").getName());
+
+        context.assertEquals(2, selected.size());
+
+        registry.setStrategy(new LeastLoadedStrategy());
+        registry.setLoad("first", 1, 2, null);
+
+        for (int i = 0; i < 10; i++)
+            context.assertEquals("second", registry.getReadyServer("room").getName());
+    }
+
+    @Test
+    public void shouldPlaceRoomsConsistently(TestContext context) throws NoServersFound {
+        Registry first = new Registry();
+        Registry second = new Registry();
+        first.setStrategy(Strategies.create(ConsistentHashStrategy.NAME));
+        second.setStrategy(Strategies.create(ConsistentHashStrategy.NAME));
+
+        for (int i = 0; i < 10; i++) {
+            first.addServer(new Server("server." + i, "localhost", 8080));
+            second.addServer(new Server("server." + (9 - i), "localhost", 8080));
+        }
+
+        for (int i = 0; i < 100; i++)
+            context.assertEquals(first.getReadyServer("room." + i), first.getReadyServer("room." + i));
+
+        for (int i = 0; i < 100; i++)
+            context.assertEquals(first.getReadyServer("room." + i).getName(), second.getReadyServer("room." + i).getName());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownStrategy() {
+        Strategies.create("unknown");
+    }
+
+    @Test
+    public void shouldMoveFewRoomsWhenServerAdded(TestContext context) {
+        HashRing ring = new HashRing(160, 1.25);
+        Map<String, Server> placed = new HashMap<>();
+
+        for (int i = 0; i < 10; i++)
+            ring.add(new Server("server." + i, "localhost", 8080));
+
+        for (int i = 0; i < 10000; i++)
+            placed.put("room." + i, ring.get("room." + i, 0));
+
+        Server added = new Server("server.10", "localhost", 8080);
+        ring.add(added);
+        int moved = 0;
+
+        for (int i = 0; i < 10000; i++) {
+            Server server = ring.get("room." + i, 0);
+
+            if (server != placed.get("room." + i)) {
+                context.assertEquals(added, server);
+                moved += 1;
+            }
+        }
+        context.assertTrue(moved > 500 && moved < 1500);
+
+        ring.remove(added);
+
+        for (int i = 0; i < 10000; i++)
+            context.assertEquals(placed.get("room." + i), ring.get("room." + i, 0));
+    }
+
+    @Test
+    public void shouldSpillRoomsFromLoadedServer(TestContext context) throws NoServersFound {
+        Registry registry = new Registry();
+        registry.setStrategy(new ConsistentHashStrategy());
+
+        for (int i = 0; i < 4; i++)
+            registry.addServer(new Server("server." + i, "localhost", 8080));
+
+        Server placed = registry.getReadyServer("new");
+
+        for (int i = 0; i < 100; i++)
+            registry.addRoom(placed.getName(), new Room("room." + i));
+
+        context.assertNotEquals(placed, registry.getReadyServer("new"));
+
+        registry.setFull(placed.getName(), true);
+        context.assertNotEquals(placed, registry.getReadyServer("new"));
+    }
+
+    @Test
+    public void shouldBoundRoomsByReadyServers(TestContext context) throws NoServersFound {
+        Registry registry = new Registry();
+        registry.setStrategy(new ConsistentHashStrategy());
+        registry.addServer(new Server("full", "localhost", 8080));
+
+        for (int i = 0; i < 100; i++)
+            registry.addRoom("full", new Room("room." + i));
+
+        registry.setFull("full", true);
+        registry.addServer(new Server("first", "localhost", 8081));
+        registry.addServer(new Server("second", "localhost", 8082));
+        Server placed = registry.getReadyServer("new");
+
+        for (int i = 0; i < 10; i++)
+            registry.addRoom(placed.getName(), new Room("other." + i));
+
+        context.assertNotEquals(placed, registry.getReadyServer("new"));
+    }
+
+    @Test
+    public void shouldPreferRecentlyActiveRoom(TestContext context) throws NoServersFound {
+        Registry registry = new Registry();
+        registry.addServer(new Server("old", "localhost", 8080));
+        registry.addServer(new Server("active", "localhost", 8081));
+        registry.addRoom("old", new Room("room"));
+        registry.addRoom("active", new Room("room"));
+        registry.getServers().get("old").getRooms().get("room").setHits(100);
+
+        context.assertEquals("old", registry.getReadyServer("room").getName());
+
+        Room active = registry.getServers().get("active").getRooms().get("room");
+
+        for (int i = 0; i < 200; i++)
+            active.hit();
+
+        context.assertTrue(Math.abs(active.getHits() - 201) < 1);
+        context.assertEquals("active", registry.getReadyServer("room").getName());
+    }
+
+    @Test
+    public void shouldDrainMetricsWithPercentiles(TestContext context) {
+        Metrics metrics = new Metrics();
+
+        for (int i = 1; i <= 1000; i++)
+            metrics.out(i * 1000);
+
+        metrics.in(Configuration.BUS_LOGGING);
+        metrics.notFound();
+        metrics.sent(1000);
+        metrics.written(1000);
+        metrics.written(2000);
+
+        IOLogger logger = metrics.drain();
+        Percentiles lookup = logger.getLookupTime();
+
+        context.assertEquals(1000L, logger.getOut());
+        context.assertEquals(1L, logger.getIn());
+        context.assertEquals(1L, logger.getNotFound());
+        context.assertEquals(1000L, lookup.getCount());
+        context.assertEquals(1L, logger.getSendTime().getCount());
+        context.assertEquals(2L, logger.getWriteTime().getCount());
+        context.assertTrue(Math.abs(lookup.getP50() - 500000) < 500000 / 8);
+        context.assertTrue(Math.abs(lookup.getP99() - 990000) < 990000 / 8);
+        context.assertTrue(lookup.getMax() >= lookup.getP999());
+        context.assertTrue(Serializer.pack(logger).contains("\"p99\""));
+
+        logger = metrics.drain();
+        context.assertEquals(0L, logger.getOut());
+        context.assertEquals(0L, logger.getLookupTime().getCount());
+        context.assertEquals(0L, logger.getEvents().get(Configuration.BUS_LOGGING));
+    }
+
+    @Test
+    public void shouldLimitLookupsWithTokenBucket(TestContext context) {
+        TokenBucket bucket = new TokenBucket(10, 5, 0);
+
+        context.assertTrue(bucket.tryAcquire(0, 5));
+        context.assertFalse(bucket.tryAcquire(0, 1));
+        context.assertFalse(bucket.tryAcquire(50_000_000, 1));
+        context.assertTrue(bucket.tryAcquire(100_000_000, 1));
+        context.assertFalse(bucket.tryAcquire(10_000_000_000L, 6));
+        context.assertTrue(bucket.tryAcquire(10_000_000_000L, 5));
+    }
+
+    @Test
+    public void shouldShareLookupBudgetOfSource(TestContext context) {
+        Admission admission = new Admission();
+        int connections = Configuration.LOOKUP_SOURCE_BURST / Configuration.LOOKUP_SOCKET_BURST + 10;
+        List<Quota> quotas = new ArrayList<>();
+        int admitted = 0;
+
+        for (int i = 0; i < connections; i++)
+            quotas.add(admission.connect("10.0.0.1", 0));
+
+        for (Quota quota : quotas)
+            while (quota.tryAcquire(0, 1))
+                admitted++;
+
+        context.assertEquals(Configuration.LOOKUP_SOURCE_BURST, admitted);
+        context.assertTrue(admission.connect("10.0.0.2", 0).tryAcquire(0, 1));
+
+        quotas.forEach(admission::disconnect);
+        admission.expire(0);
+        Quota reconnected = admission.connect("10.0.0.1", 0);
+        context.assertFalse(reconnected.tryAcquire(0, Configuration.LOOKUP_SOCKET_BURST));
+
+        long refilled = 1_000_000_000L * Configuration.LOOKUP_SOCKET_BURST / Configuration.LOOKUP_SOURCE_RATE + 1000;
+        context.assertTrue(reconnected.tryAcquire(refilled, Configuration.LOOKUP_SOCKET_BURST));
+    }
+
+    @Test
+    public void shouldReleaseLookupsToQuota(TestContext context) {
+        Admission admission = new Admission();
+        Quota quota = admission.connect("10.0.0.1", 0);
+
+        context.assertTrue(quota.tryAcquire(0, 1));
+        context.assertFalse(quota.tryAcquire(0, Configuration.LOOKUP_SOCKET_BURST));
+
+        quota.release(1);
+        context.assertTrue(quota.tryAcquire(0, Configuration.LOOKUP_SOCKET_BURST));
+    }
+
+    @Test
+    public void shouldExpireOnTimerWheel(TestContext context) {
+        TimerWheel<String> wheel = new TimerWheel<>(8);
+        List<String> expired = new ArrayList<>();
+
+        wheel.schedule("first", 2);
+        wheel.schedule("second", 4);
+        wheel.advance(expired::add);
+        wheel.schedule("first", 2);
+        wheel.advance(expired::add);
+        context.assertTrue(expired.isEmpty());
+
+        wheel.advance(expired::add);
+        context.assertEquals(Collections.singletonList("first"), expired);
+
+        wheel.cancel("second");
+        wheel.advance(expired::add);
+        wheel.advance(expired::add);
+        context.assertEquals(1, expired.size());
+        context.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void shouldNotBalanceToServerMissingHeartbeats(TestContext context) throws Exception {
+        File snapshot = Files.createTempFile("registry", "snapshot").toFile();
+        Registry registry = new Registry();
+        registry.addServer(new Server("silent", "localhost", 8080));
+        registry.setAlive("silent", false);
+        registry.setFull("silent", false);
+
+        try {
+            registry.getReadyServer("room");
+            throw new Exception("Should fail with NoServersFound()");
+        } catch (NoServersFound ignored) {
+        }
+
+        Snapshot.save(snapshot, 1, registry);
+        Registry restored = new Registry();
+        Snapshot.load(snapshot, restored);
+        context.assertFalse(restored.getServer("silent").isAlive());
+
+        restored.setAlive("silent", true);
+        context.assertEquals("silent", restored.getReadyServer("room").getName());
+    }
+
+    @Test
+    public void shouldRestoreTrackedServers(TestContext context) throws IOException {
+        File directory = Files.createTempDirectory("registry").toFile();
+        File snapshot = new File(directory, "snapshot");
+        Registry registry = new Registry();
+        registry.addServer(new Server("first", "localhost", 8080));
+        registry.addServer(new Server("second", "localhost", 8081));
+        registry.setTracked("first", true);
+        Snapshot.save(snapshot, 1, registry);
+
+        Journal journal = new Journal(new File(directory, "journal"), 65536, () -> {
+        });
+        journal.reset(1);
+        registry.addListener(journal);
+        registry.setTracked("second", true);
+        registry.addServer(new Server("third", "localhost", 8082));
+        journal.close();
+
+        Registry restored = new Registry();
+        Snapshot.load(snapshot, restored);
+        journal = new Journal(new File(directory, "journal"), 65536, () -> {
+        });
+        journal.replay(restored);
+        journal.close();
+
+        context.assertTrue(restored.getServer("first").isTracked());
+        context.assertTrue(restored.getServer("second").isTracked());
+        context.assertFalse(restored.getServer("third").isTracked());
+    }
+
+    @Test
+    public void shouldNotBalanceToHostMissingHeartbeats(TestContext context) throws NoServersFound {
+        for (String strategy : Strategies.getNames()) {
+            Registry registry = new Registry();
+            registry.setStrategy(Strategies.create(strategy));
+            registry.addServer(new Server("host", "localhost", 8080));
+            registry.addServer(new Server("other", "localhost", 8081));
+            registry.addRoom("host", new Room("room"));
+            registry.setAlive("host", false);
+            registry.getLastPolled().put("room", "host");
+
+            context.assertEquals("other", registry.getReadyServer("room").getName());
+        }
+    }
+
+    @Test
+    public void shouldApplyBatchInOrder(TestContext context) {
+        Vertx vertx = Vertx.vertx();
+        RegistryService service = new RegistryService();
+        service.init(vertx, vertx.getOrCreateContext());
+        Connector connector = new Connector("connector");
+
+        Packet packet = service.unpackEvent(Serializer.pack(new EventBatch()
+                .add(new ServerEvent("server", ServerEvent.ServerStatus.UP))
+                .add(new RoomEvent("server", "room", RoomEvent.RoomStatus.POPULATED))
+                .add(new ServerEvent("server", ServerEvent.ServerStatus.DOWN))
+                .add(new ServerEvent("server", ServerEvent.ServerStatus.UP))).getBytes());
+
+        EventHandler.HandleBatch.apply(packet.getMessage(), connector, service);
+
+        context.assertEquals(1, service.getOwnedBy("connector").size());
+        context.assertTrue(service.getOwnedBy("connector").get(0).getRooms().isEmpty());
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void shouldReplaceRegistryInSingleStep(TestContext context) throws NoServersFound {
+        Registry registry = new Registry();
+        registry.addServer(new Server("previous", "localhost", 8080));
+
+        Registry loaded = new Registry();
+        loaded.addServer(new Server("loaded", "localhost", 8081));
+        loaded.addRoom("loaded", new Room("room"));
+        context.assertEquals("previous", registry.getReadyServer("room").getName());
+
+        registry.replace(loaded);
+        context.assertNull(registry.getServer("previous"));
+        context.assertEquals("loaded", registry.getReadyServer("room").getName());
+        context.assertEquals(1, registry.getChanges().drain().getRemoved().size());
+    }
+
+    @Test
+    public void shouldBindBatchedEventsToTheirFormats(TestContext context) {
+        Map<String, Class> formats = new HashMap<>();
+        formats.put(EventBatch.ACTION, EventBatch.class);
+        formats.put(RoomEvent.ACTION, RoomEvent.class);
+        EventBatch batch = new EventBatch()
+                .add(new RoomEvent("server", "room", RoomEvent.RoomStatus.POPULATED))
+                .add(new ServerEvent("server", ServerEvent.ServerStatus.UP).setIp("localhost"))
+                .add(new RoomEvent("server", "other", RoomEvent.RoomStatus.DEPLETED));
+
+        for (byte[] data : new byte[][]{Serializer.pack(batch).getBytes(), Serializer.packBinary(batch)}) {
+            List<Packet> events = ((EventBatch) Serializer.unpack(data, formats).getMessage()).getEvents();
+
+            context.assertEquals(3, events.size());
+            context.assertEquals("room", ((RoomEvent) events.get(0).getMessage()).getRoom());
+            context.assertEquals(ServerEvent.ACTION, events.get(1).getAction());
+            context.assertNull(events.get(1).getMessage());
+            context.assertEquals(RoomEvent.RoomStatus.DEPLETED, ((RoomEvent) events.get(2).getMessage()).getStatus());
+        }
+    }
+
+    @Test
+    public void shouldSnapshotNamesLongerThanModifiedUtf(TestContext context) throws IOException {
+        String room = String.join("", Collections.nCopies(70000, "r"));
+        Registry registry = new Registry();
+        registry.addServer(new Server("server", "localhost", 8080));
+        registry.addRoom("server", new Room(room));
+        registry.getLastPolled().put(room, "server");
+
+        Registry restored = new Registry();
+        Snapshot.load(Snapshot.toBytes(1, registry), restored);
+        context.assertTrue(restored.getServer("server").getRooms().containsKey(room));
+        context.assertEquals("server", restored.getLastPolled().get(room));
+    }
+
+    @Test
+    public void shouldTreatNullRoomsOfBatchAsEmpty(TestContext context) {
+        Map<String, Class> formats = new HashMap<>();
+        formats.put(LookupBatch.ACTION, LookupBatch.class);
+        Packet packet = Serializer.unpack(
+                "{\"header\":{\"action\":\"registry.lookup.batch\"},\"rooms\":null}".getBytes(), formats);
+
+        context.assertEquals(0, MessageHandler.HandleLookupBatch.getLookups(packet.getMessage()));
+    }
+}
@@ -0,0 +1,73 @@
+package com.websocket.chat.registry.Admission;
+
+import com.websocket.chat.registry.Configuration;
+import io.vertx.core.Vertx;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created by Robin on 2016-01-11.
+ * <p>
+ * Admits connections to the lookup port up to a global limit and keeps
+ * the lookup budgets of the source addresses. Shared by the lookup
+ * service instances so that the limits hold over all event loops.
+ * <p>
+ * The budget of a source is kept after its last connection closes until
+ * it has refilled, so that reconnecting does not reset the budget.
+ */
+public class Admission implements Shareable {
+    private final AtomicInteger connections = new AtomicInteger(0);
+    private final Map<String, Source> sources = new ConcurrentHashMap<>();
+
+    /**
+     * @param vertx the vertx instance the lookup services are deployed on.
+     * @return the admission control shared by the lookup services.
+     */
+    public static Admission getShared(Vertx vertx) {
+        LocalMap<String, Admission> shared = vertx.sharedData().getLocalMap(Configuration.ADMISSION_SHARED);
+        Admission admission = new Admission();
+        Admission existing = shared.putIfAbsent(Configuration.ADMISSION_SHARED, admission);
+
+        if (existing != null)
+            return existing;
+
+        vertx.setPeriodic(Configuration.LOOKUP_SOURCE_EXPIRY, expiry -> admission.expire(System.nanoTime()));
+        return admission;
+    }
+
+    /**
+     * @param address the source address of a new connection.
+     * @param now     the current time in nanoseconds.
+     * @return the budget of the connection, null if the connection limit is reached.
+     */
+    public Quota connect(String address, long now) {
+        if (connections.incrementAndGet() > Configuration.LOOKUP_CONNECTIONS) {
+            connections.decrementAndGet();
+            return null;
+        }
+        return new Quota(sources.compute(address,
+                (key, source) -> ((source == null) ? new Source(address, now) : source).connected()), now);
+    }
+
+    /**
+     * @param quota the budget of a connection that was closed.
+     */
+    public void disconnect(Quota quota) {
+        connections.decrementAndGet();
+        sources.computeIfPresent(quota.getSource().getAddress(), (key, source) -> source.disconnected());
+    }
+
+    /**
+     * Forgets the sources without connections that have a full budget.
+     *
+     * @param now the current time in nanoseconds.
+     */
+    public void expire(long now) {
+        for (String address : sources.keySet())
+            sources.computeIfPresent(address, (key, source) -> source.isIdle(now) ? null : source);
+    }
+}
@@ -0,0 +1,51 @@
+package com.websocket.chat.registry.Admission;
+
+import com.websocket.chat.registry.Configuration;
+
+/**
+ * Created by Robin on 2016-01-11.
+ * <p>
+ * The lookup budget of an admitted connection, lookups are limited both
+ * per connection and per source address.
+ */
+public class Quota {
+    private final TokenBucket socket;
+    private final Source source;
+
+    Quota(Source source, long now) {
+        this.socket = new TokenBucket(Configuration.LOOKUP_SOCKET_RATE, Configuration.LOOKUP_SOCKET_BURST, now);
+        this.source = source;
+    }
+
+    /**
+     * @param now     the current time in nanoseconds.
+     * @param lookups the number of lookups to take from the budget.
+     * @return true if the lookups are within the budget of both the
+     * connection and its source address, the budgets are unchanged when not.
+     */
+    public boolean tryAcquire(long now, int lookups) {
+        if (!socket.tryAcquire(now, lookups))
+            return false;
+
+        if (source.getBucket().tryAcquire(now, lookups))
+            return true;
+
+        socket.release(lookups);
+        return false;
+    }
+
+    /**
+     * Returns lookups that were taken but not used to the budgets of the
+     * connection and its source address.
+     *
+     * @param lookups the number of lookups to return.
+     */
+    public void release(int lookups) {
+        socket.release(lookups);
+        source.getBucket().release(lookups);
+    }
+
+    Source getSource() {
+        return source;
+    }
+}
@@ -0,0 +1,46 @@
+package com.websocket.chat.registry.Admission;
+
+import com.websocket.chat.registry.Configuration;
+
+/**
+ * Created by Robin on 2016-01-11.
+ * <p>
+ * A source address and its lookup budget, which is shared by the
+ * connections of the source.
+ */
+class Source {
+    private final String address;
+    private final TokenBucket bucket;
+    private int connections = 0;
+
+    Source(String address, long now) {
+        this.address = address;
+        this.bucket = new TokenBucket(Configuration.LOOKUP_SOURCE_RATE, Configuration.LOOKUP_SOURCE_BURST, now);
+    }
+
+    String getAddress() {
+        return address;
+    }
+
+    TokenBucket getBucket() {
+        return bucket;
+    }
+
+    Source connected() {
+        connections += 1;
+        return this;
+    }
+
+    Source disconnected() {
+        connections -= 1;
+        return this;
+    }
+
+    /**
+     * @param now the current time in nanoseconds.
+     * @return true if the source has no connections and its budget has refilled.
+     */
+    boolean isIdle(long now) {
+        return connections == 0 && bucket.isFull(now);
+    }
+}
@@ -0,0 +1,65 @@
+package com.websocket.chat.registry.Admission;
+
+/**
+ * Created by Robin on 2016-01-11.
+ * <p>
+ * Limits a rate of operations while allowing short bursts, tokens are
+ * refilled at a fixed rate up to the size of the bucket.
+ */
+public class TokenBucket {
+    private final double rate;
+    private final double burst;
+    private double tokens;
+    private long updated;
+
+    /**
+     * @param rate  the number of tokens added per second.
+     * @param burst the maximum number of tokens, the bucket starts full.
+     * @param now   the current time in nanoseconds.
+     */
+    public TokenBucket(double rate, double burst, long now) {
+        this.rate = rate / 1_000_000_000;
+        this.burst = burst;
+        this.tokens = burst;
+        this.updated = now;
+    }
+
+    /**
+     * @param now   the current time in nanoseconds.
+     * @param count the number of tokens to take.
+     * @return true if the tokens were taken, false if the bucket holds too few.
+     */
+    public synchronized boolean tryAcquire(long now, int count) {
+        refill(now);
+
+        if (tokens >= count) {
+            tokens -= count;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * @param count the number of tokens to put back after they were taken.
+     */
+    public synchronized void release(int count) {
+        tokens = Math.min(burst, tokens + count);
+    }
+
+    /**
+     * @param now the current time in nanoseconds.
+     * @return true if the bucket has refilled to its full size.
+     */
+    public synchronized boolean isFull(long now) {
+        refill(now);
+        return tokens >= burst;
+    }
+
+    private void refill(long now) {
+        if (now > updated) {
+            tokens = Math.min(burst, tokens + (now - updated) * rate);
+            updated = now;
+        }
+    }
+}
@@ -8,8 +8,48 @@ package com.websocket.chat.registry;
 public class Configuration {
     public final static Integer CLIENT_PORT = 6090;
     public final static Integer CONNECTOR_PORT = 7040;
+    public static final long CONNECTOR_GRACE = 10000;
     public static final Integer LOGGER_PORT = 5454;
     public static final String BUS_LOGGING = "logger.upstream";
+    public static final Integer LOGGER_BUFFER_SIZE = 8192;
+    public static final Integer LOGGER_BATCH_SIZE = 64;
+    public static final long LOGGER_FLUSH_INTERVAL = 100;
+    public static final long LOGGER_BACKOFF_MIN = 500;
+    public static final long LOGGER_BACKOFF_MAX = 30000;
     public static final long LOG_INTERVAL = 1000;
+    public static final long LOG_SNAPSHOT_INTERVAL = 60;
+    public static final String BUS_SNAPSHOT = "registry.snapshot";
     public static final String REGISTER_NAME = "registry";
+    public static final String REGISTRY_SHARED = "registry.shared";
+    public static final Integer LOOKUP_INSTANCES = Runtime.getRuntime().availableProcessors();
+    public static final Integer AFFINITY_CACHE_SIZE = 65536;
+    public static final long AFFINITY_CACHE_TTL = 600000;
+    public static final String STORAGE_PATH = "data";
+    public static final String STORAGE_SNAPSHOT = "registry.snapshot";
+    public static final String STORAGE_JOURNAL = "registry.journal";
+    public static final Integer JOURNAL_SIZE = 16 * 1024 * 1024;
+    public static final long SNAPSHOT_INTERVAL = 60000;
+    public static final long SNAPSHOT_RETRY = 5000;
+    public static final long RESTORE_GRACE = 30000;
+    public static final boolean REPLICA = Boolean.getBoolean("registry.replica");
+    public static final String BUS_REPLICATION = "registry.replication";
+    public static final String BUS_REPLICATION_SNAPSHOT = "registry.replication.snapshot";
+    public static final long REPLICA_RETRY = 1000;
+    public static final String SELECTION_STRATEGY = System.getProperty("registry.strategy", "affinity");
+    public static final String BUS_STRATEGY = "registry.strategy";
+    public static final Integer RING_REPLICAS = 160;
+    public static final double RING_BALANCE = 1.25;
+    public static final long HIT_DECAY = 300000;
+    public static final String ADMISSION_SHARED = "registry.admission";
+    public static final Integer LOOKUP_CONNECTIONS = Integer.getInteger("registry.lookup.connections", 50000);
+    public static final Integer LOOKUP_SOCKET_RATE = Integer.getInteger("registry.lookup.socket.rate", 50);
+    public static final Integer LOOKUP_SOCKET_BURST = Integer.getInteger("registry.lookup.socket.burst", 200);
+    public static final Integer LOOKUP_SOURCE_RATE = Integer.getInteger("registry.lookup.source.rate", 1000);
+    public static final Integer LOOKUP_SOURCE_BURST = Integer.getInteger("registry.lookup.source.burst", 4000);
+    public static final long LOOKUP_RETRY = 1000;
+    public static final long LOOKUP_SOURCE_EXPIRY = 10000;
+    public static final long LAG_PROBE_INTERVAL = 100;
+    public static final long HEARTBEAT_INTERVAL = 1000;
+    public static final Integer HEARTBEAT_MISSED = 3;
+    public static final Integer HEARTBEAT_EXPIRE = 30;
 }
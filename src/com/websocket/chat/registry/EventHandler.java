@@ -1,10 +1,9 @@
 package com.websocket.chat.registry;
 
+import com.websocket.chat.registry.Model.Connector;
 import com.websocket.chat.registry.Model.Room;
 import com.websocket.chat.registry.Model.Server;
-import com.websocket.chat.registry.Protocol.RoomEvent;
-import com.websocket.chat.registry.Protocol.Serializer;
-import com.websocket.chat.registry.Protocol.ServerEvent;
+import com.websocket.chat.registry.Protocol.*;
 
 /**
  * Created by Robin on 2015-12-18.
@@ -16,10 +15,16 @@ import com.websocket.chat.registry.Protocol.ServerEvent;
  */
 enum EventHandler {
 
-    HandleRoom {
+    HandleRoom(RoomEvent.class) {
         @Override
-        public void handle(String data, RegistryService registry) {
-            RoomEvent room = (RoomEvent) Serializer.unpack(data, RoomEvent.class);
+        public void handle(Object message, Connector connector, RegistryService registry) {
+            apply(message, connector, registry);
+            registry.sendBus(Configuration.BUS_LOGGING, message);
+        }
+
+        @Override
+        public void apply(Object message, Connector connector, RegistryService registry) {
+            RoomEvent room = (RoomEvent) message;
 
             if (room.getStatus() != null)
                 switch (room.getStatus()) {
@@ -30,19 +35,20 @@ enum EventHandler {
                         registry.removeRoom(room.getServer(), room.getRoom());
                         break;
                 }
-            registry.sendBus(Configuration.BUS_LOGGING, data);
         }
     },
 
-    HandleServer {
+    HandleServer(ServerEvent.class) {
         @Override
-        public void handle(String data, RegistryService registry) {
-            ServerEvent server = (ServerEvent) Serializer.unpack(data, ServerEvent.class);
+        public void apply(Object message, Connector connector, RegistryService registry) {
+            ServerEvent server = (ServerEvent) message;
 
             if (server.getStatus() != null)
                 switch (server.getStatus()) {
                     case UP:
-                        registry.addServer(new Server(server.getName(), server.getIp(), server.getPort()));
+                        Server added = new Server(server.getName(), server.getIp(), server.getPort());
+                        added.setOwner(connector.getName());
+                        registry.addServer(added);
                         break;
                     case DOWN:
                         registry.removeServer(server.getName());
@@ -53,9 +59,82 @@ enum EventHandler {
                     case READY:
                         registry.setFull(server.getName(), false);
                         break;
+                    case LOAD:
+                        break;
                 }
+
+            if (server.getStatus() != ServerEvent.ServerStatus.DOWN && server.hasLoad())
+                registry.setLoad(server.getName(), server.getUsers(), server.getCapacity(), server.getCpu());
+        }
+    },
+
+    HandleHeartbeat(HeartbeatEvent.class) {
+        @Override
+        public void apply(Object message, Connector connector, RegistryService registry) {
+            registry.heartbeat(((HeartbeatEvent) message).getName());
+        }
+    },
+
+    HandleConnector(ConnectorEvent.class) {
+        @Override
+        public void apply(Object message, Connector connector, RegistryService registry) {
+            ConnectorEvent event = (ConnectorEvent) message;
+
+            if (event.getName() != null && !event.getName().equals(connector.getName()))
+                registry.rename(connector, event.getName());
+
+            registry.sendBus(connector.getAddress(),
+                    new ConnectorState(connector.getName(), registry.getOwnedBy(connector.getName())));
+        }
+    },
+
+    HandleBatch(EventBatch.class) {
+        @Override
+        public void apply(Object message, Connector connector, RegistryService registry) {
+            EventBatch batch = (EventBatch) message;
+            EventLog log = new EventLog();
+
+            for (Packet packet : batch.getEvents()) {
+                if (packet.getMessage() != null && !packet.getAction().equals(EventBatch.ACTION)) {
+                    registry.getEventHandler(packet.getAction()).apply(packet.getMessage(), connector, registry);
+                    log.add(packet.getAction());
+                }
+            }
+            registry.sendBus(Configuration.BUS_LOGGING, log);
         }
     };
 
-    public abstract void handle(String data, RegistryService registry);
+    private final Class format;
+
+    EventHandler(Class format) {
+        this.format = format;
+    }
+
+    /**
+     * @return the class that events for this handler are unpacked into.
+     */
+    public Class getFormat() {
+        return format;
+    }
+
+    /**
+     * Applies an event to the registry and logs it.
+     *
+     * @param message   the event unpacked into the format of the handler.
+     * @param connector the connector that sent the event.
+     * @param registry  the registry to apply the event to.
+     */
+    public void handle(Object message, Connector connector, RegistryService registry) {
+        apply(message, connector, registry);
+    }
+
+    /**
+     * Applies an event to the registry, events applied as part of a batch
+     * are logged once for the whole batch.
+     *
+     * @param message   the event unpacked into the format of the handler.
+     * @param connector the connector that sent the event.
+     * @param registry  the registry to apply the event to.
+     */
+    public abstract void apply(Object message, Connector connector, RegistryService registry);
 }
@@ -23,7 +23,14 @@ public class Launcher extends AbstractVerticle {
 
     @Override
     public void start(Future<Void> startFuture) throws Exception {
-        vertx.deployVerticle(new RegistryService());
+        Verticle writer = (Configuration.REPLICA) ? new ReplicaService() : new RegistryService();
+
+        vertx.deployVerticle(writer, new DeploymentOptions().setWorker(true), registry -> {
+            if (registry.succeeded()) {
+                vertx.deployVerticle(LookupService.class.getName(),
+                        new DeploymentOptions().setInstances(Configuration.LOOKUP_INSTANCES));
+            }
+        });
         vertx.deployVerticle(new Logger());
     }
 
@@ -1,16 +1,32 @@
 package com.websocket.chat.registry;
 
+import com.websocket.chat.registry.Protocol.Serializer;
+import com.websocket.chat.registry.Protocol.UploaderLog;
 import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Verticle;
 import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.WebSocket;
+
+import java.util.ArrayDeque;
 
 /**
  * Created by Robin on 2015-12-26.
  *
  * Uploads messages to the logging service.
+ *
+ * Messages are buffered and written in batches when the batch is full or
+ * when the flush interval passes. The buffer is bounded, messages are dropped
+ * when it is full and no more is written while the socket write queue is full.
+ * The connection is reopened with an increasing backoff when lost.
  */
 public class Logger implements Verticle {
+    private ArrayDeque<String> buffer = new ArrayDeque<>();
+    private UploaderLog stats = new UploaderLog();
+    private long backoff = Configuration.LOGGER_BACKOFF_MIN;
+    private HttpClient client;
+    private WebSocket socket;
     private Vertx vertx;
 
     @Override
@@ -25,17 +41,70 @@ public class Logger implements Verticle {
 
     @Override
     public void start(Future<Void> startFuture) throws Exception {
-        vertx.createHttpClient().websocket(Configuration.LOGGER_PORT, "localhost", "/", event -> {
+        client = vertx.createHttpClient();
 
-            vertx.eventBus().consumer(Configuration.BUS_LOGGING, data -> {
-               vertx.eventBus().send(event.textHandlerID(), data.body().toString());
-            });
+        vertx.eventBus().consumer(Configuration.BUS_LOGGING, data -> {
+            enqueue(data.body().toString());
+        });
+
+        vertx.setPeriodic(Configuration.LOGGER_FLUSH_INTERVAL, event -> flush());
 
+        vertx.setPeriodic(Configuration.LOG_INTERVAL, event -> {
+            stats.setQueued(buffer.size());
+            enqueue(Serializer.pack(stats));
+            stats.reset();
         });
+
+        connect();
+        startFuture.complete();
+    }
+
+    private void connect() {
+        client.websocket(Configuration.LOGGER_PORT, "localhost", "/", event -> {
+            socket = event;
+            backoff = Configuration.LOGGER_BACKOFF_MIN;
+
+            event.closeHandler(close -> {
+                socket = null;
+                reconnect();
+            });
+
+            flush();
+        }, failure -> reconnect());
+    }
+
+    private void reconnect() {
+        stats.reconnect();
+
+        vertx.setTimer(backoff, event -> connect());
+        backoff = Math.min(backoff * 2, Configuration.LOGGER_BACKOFF_MAX);
+    }
+
+    private void enqueue(String message) {
+        if (buffer.size() >= Configuration.LOGGER_BUFFER_SIZE) {
+            stats.dropped();
+        } else {
+            buffer.add(message);
+
+            if (buffer.size() % Configuration.LOGGER_BATCH_SIZE == 0)
+                flush();
+        }
+    }
+
+    private void flush() {
+        if (socket != null) {
+            while (!buffer.isEmpty() && !socket.writeQueueFull()) {
+                socket.writeFinalTextFrame(buffer.poll());
+                stats.sent();
+            }
+
+            if (!buffer.isEmpty())
+                socket.drainHandler(drained -> flush());
+        }
     }
 
     @Override
     public void stop(Future<Void> stopFuture) throws Exception {
-
+        stopFuture.complete();
     }
 }
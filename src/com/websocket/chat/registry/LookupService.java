@@ -0,0 +1,260 @@
+package com.websocket.chat.registry;
+
+import com.websocket.chat.registry.Admission.Admission;
+import com.websocket.chat.registry.Admission.Quota;
+import com.websocket.chat.registry.Exception.NoServersFound;
+import com.websocket.chat.registry.Model.Server;
+import com.websocket.chat.registry.Protocol.Encoded;
+import com.websocket.chat.registry.Protocol.Index;
+import com.websocket.chat.registry.Protocol.Lookup;
+import com.websocket.chat.registry.Protocol.LookupBatch;
+import com.websocket.chat.registry.Protocol.Packet;
+import com.websocket.chat.registry.Protocol.Rejection;
+import com.websocket.chat.registry.Protocol.Serializer;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Verticle;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.ServerWebSocket;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Created by Robin on 2015-12-31.
+ * <p>
+ * Serves client lookups from the shared registry, multiple instances
+ * may be deployed to spread the lookups over the event loops.
+ * <p>
+ * Lookups sent as Smile on binary frames are answered with Smile on binary
+ * frames, lookups sent as JSON text are answered with JSON text.
+ * <p>
+ * Responses are written directly to the socket. A client that does not
+ * read its responses fills the write queue, reading from the client is
+ * then paused until the queue is drained.
+ * <p>
+ * Connections are admitted up to a global limit and lookups are limited
+ * per connection and per source address, lookups over the budget are
+ * answered with a rejection without being parsed.
+ * <p>
+ * Lookups are coalesced when the selection strategy selects the same server
+ * for a room, lookups for the same room that arrive within the same event
+ * loop tick are answered with the server selected for the first of them,
+ * their hits are counted together when the tick ends.
+ */
+public class LookupService implements Verticle {
+    private Map<String, MessageHandler> messageHandler = new HashMap<>();
+    private Map<String, Class> messageFormat = new HashMap<>();
+    private Map<String, Coalesced> coalesced = new HashMap<>();
+    private long received;
+    private Registry registry;
+    private Admission admission;
+    private Context context;
+    private Vertx vertx;
+
+    @Override
+    public Vertx getVertx() {
+        return vertx;
+    }
+
+    @Override
+    public void init(Vertx vertx, Context context) {
+        this.vertx = vertx;
+        this.context = context;
+        this.registry = RegistryService.getShared(vertx);
+
+        messageHandler.put(Lookup.ACTION, MessageHandler.HandleLookup);
+        messageHandler.put(LookupBatch.ACTION, MessageHandler.HandleLookupBatch);
+        messageHandler.forEach((action, handler) -> messageFormat.put(action, handler.getFormat()));
+    }
+
+    @Override
+    public void start(Future<Void> startFuture) throws Exception {
+        admission = Admission.getShared(vertx);
+
+        vertx.createHttpServer().websocketHandler(event -> {
+            Quota quota = admission.connect(event.remoteAddress().host(), System.nanoTime());
+
+            if (quota == null) {
+                registry.getMetrics().refused();
+                event.reject();
+                return;
+            }
+
+            registry.getMetrics().connected();
+            event.closeHandler(closed -> {
+                admission.disconnect(quota);
+                registry.getMetrics().disconnected();
+            });
+            event.drainHandler(drained -> event.resume());
+
+            event.handler(data -> {
+                received = System.nanoTime();
+                byte[] bytes = data.getBytes();
+                boolean binary = Serializer.isBinary(bytes);
+
+                if (!quota.tryAcquire(received, 1)) {
+                    reject(event, binary, 1);
+                    return;
+                }
+
+                Packet packet = Serializer.unpack(bytes, messageFormat);
+                registry.getMetrics().parsed(System.nanoTime() - received);
+
+                if (packet.getMessage() != null) {
+                    MessageHandler handler = messageHandler.get(packet.getAction());
+                    int lookups = handler.getLookups(packet.getMessage());
+
+                    if (lookups > 1 && !quota.tryAcquire(received, lookups - 1)) {
+                        quota.release(1);
+                        reject(event, binary, lookups);
+                    } else {
+                        handler.handle(event, binary, packet.getMessage(), this);
+                    }
+                }
+            });
+
+        }).listen(Configuration.CLIENT_PORT);
+        System.out.println("Lookup service running on port " + Configuration.CLIENT_PORT);
+        startFuture.complete();
+    }
+
+    /**
+     * Answers a lookup with the server selected for the room. The answer is
+     * written while the frame is being read, so that it is flushed together
+     * with the other answers of the read.
+     *
+     * @param socket the socket to answer.
+     * @param binary true if the answer is to be packed as Smile.
+     * @param room   the room to look up.
+     */
+    protected void lookup(ServerWebSocket socket, boolean binary, String room) {
+        send(socket, select(room), binary);
+        registry.getMetrics().out(System.nanoTime() - received);
+    }
+
+    /**
+     * Selects a server for a lookup. When the strategy is coalescable the
+     * server is selected by the first lookup for the room in the current
+     * event loop tick, otherwise every lookup makes its own selection.
+     *
+     * @param room the room to look up.
+     * @return the encoded index of the selected server.
+     */
+    Encoded select(String room) {
+        Server server;
+
+        if (registry.getStrategy().isCoalescable())
+            server = coalesce(room);
+        else
+            server = selectServer(room);
+
+        if (server == null) {
+            notFound();
+            return Index.FULL;
+        } else {
+            return Index.encoded(server);
+        }
+    }
+
+    private Server coalesce(String room) {
+        Coalesced lookup = coalesced.get(room);
+
+        if (lookup == null) {
+            if (coalesced.isEmpty())
+                context.runOnContext(tick -> endTick());
+
+            lookup = new Coalesced(room, selectServer(room));
+            coalesced.put(room, lookup);
+        } else {
+            lookup.clients += 1;
+        }
+        return lookup.server;
+    }
+
+    private Server selectServer(String room) {
+        try {
+            return getReadyServer(room);
+        } catch (NoServersFound e) {
+            return null;
+        }
+    }
+
+    private void endTick() {
+        for (Coalesced lookup : coalesced.values())
+            if (lookup.server != null && lookup.clients > 1)
+                registry.hit(lookup.server, lookup.room, lookup.clients - 1);
+
+        coalesced.clear();
+    }
+
+    private void reject(ServerWebSocket socket, boolean binary, int lookups) {
+        registry.getMetrics().shed(lookups);
+        send(socket, Rejection.REJECTED, binary);
+    }
+
+    protected void send(ServerWebSocket socket, Object data, boolean binary) {
+        if (binary)
+            write(socket, Buffer.buffer(Serializer.packBinary(data)));
+        else
+            write(socket, Serializer.pack(data));
+
+        registry.getMetrics().out(System.nanoTime() - received);
+    }
+
+    private void send(ServerWebSocket socket, Encoded data, boolean binary) {
+        if (binary)
+            write(socket, data.getBinary());
+        else
+            write(socket, data.getText());
+    }
+
+    private void write(ServerWebSocket socket, Buffer data) {
+        long start = System.nanoTime();
+        socket.writeFinalBinaryFrame(data);
+        written(socket, start);
+    }
+
+    private void write(ServerWebSocket socket, String data) {
+        long start = System.nanoTime();
+        socket.writeFinalTextFrame(data);
+        written(socket, start);
+    }
+
+    private void written(ServerWebSocket socket, long start) {
+        registry.getMetrics().written(System.nanoTime() - start);
+
+        if (socket.writeQueueFull())
+            socket.pause();
+    }
+
+    protected void notFound() {
+        registry.getMetrics().notFound();
+    }
+
+    protected Server getReadyServer(String roomName) throws NoServersFound {
+        return registry.getReadyServer(roomName);
+    }
+
+    /**
+     * The server selected for a room in the current tick and the number of
+     * clients that have been sent to it, the server is null when no servers
+     * were ready.
+     */
+    private static class Coalesced {
+        final String room;
+        final Server server;
+        int clients = 1;
+
+        Coalesced(String room, Server server) {
+            this.room = room;
+            this.server = server;
+        }
+    }
+
+    @Override
+    public void stop(Future<Void> stopFuture) throws Exception {
+        stopFuture.complete();
+    }
+}
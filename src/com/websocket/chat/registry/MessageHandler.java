@@ -1,10 +1,14 @@
 package com.websocket.chat.registry;
 
 import com.websocket.chat.registry.Exception.NoServersFound;
-import com.websocket.chat.registry.Model.Server;
 import com.websocket.chat.registry.Protocol.Index;
+import com.websocket.chat.registry.Protocol.IndexBatch;
 import com.websocket.chat.registry.Protocol.Lookup;
-import com.websocket.chat.registry.Protocol.Serializer;
+import com.websocket.chat.registry.Protocol.LookupBatch;
+import io.vertx.core.http.ServerWebSocket;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Created by Robin on 2015-12-18.
@@ -12,18 +16,62 @@ import com.websocket.chat.registry.Protocol.Serializer;
  * Handles messages from a client.
  */
 enum MessageHandler {
-    HandleLookup {
+    HandleLookup(Lookup.class) {
+        @Override
+        public void handle(ServerWebSocket socket, boolean binary, Object message, LookupService service) {
+            service.lookup(socket, binary, ((Lookup) message).getRoom());
+        }
+    },
+
+    HandleLookupBatch(LookupBatch.class) {
         @Override
-        public void handle(String socket, String data, RegistryService registry) {
-            Lookup lookup = (Lookup) Serializer.unpack(data, Lookup.class);
-            try {
-                Server server = registry.getReadyServer(lookup.getRoom());
-                registry.sendBus(socket, new Index(server));
-            } catch (NoServersFound e) {
-                registry.sendBus(socket, new Index().setFull(true));
+        public void handle(ServerWebSocket socket, boolean binary, Object message, LookupService service) {
+            LookupBatch batch = (LookupBatch) message;
+            List<Index> indexes = new ArrayList<>(batch.getRooms().size());
+
+            for (String room : batch.getRooms()) {
+                try {
+                    indexes.add(new Index(service.getReadyServer(room)));
+                } catch (NoServersFound e) {
+                    service.notFound();
+                    indexes.add(new Index().setFull(true));
+                }
             }
+            service.send(socket, new IndexBatch(indexes), binary);
+        }
+
+        @Override
+        public int getLookups(Object message) {
+            return ((LookupBatch) message).getRooms().size();
         }
     };
 
-    public abstract void handle(String socket, String data, RegistryService registry);
+    private final Class format;
+
+    MessageHandler(Class format) {
+        this.format = format;
+    }
+
+    /**
+     * @return the class that messages for this handler are unpacked into.
+     */
+    public Class getFormat() {
+        return format;
+    }
+
+    /**
+     * @param message the unpacked message.
+     * @return the number of lookups the message is charged for.
+     */
+    public int getLookups(Object message) {
+        return 1;
+    }
+
+    /**
+     * @param socket  the socket to reply to.
+     * @param binary  true if the reply is to be packed as Smile.
+     * @param message the unpacked message.
+     * @param service the lookup service that received the message.
+     */
+    public abstract void handle(ServerWebSocket socket, boolean binary, Object message, LookupService service);
 }
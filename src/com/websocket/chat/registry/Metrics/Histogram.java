@@ -0,0 +1,102 @@
+package com.websocket.chat.registry.Metrics;
+
+import com.websocket.chat.registry.Protocol.Percentiles;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Created by Robin on 2016-01-09.
+ * <p>
+ * Histogram of durations in nanoseconds with log-linear buckets, every power
+ * of two is split into eight buckets so values are kept within 12.5%.
+ * <p>
+ * Buckets are striped counters like the other metrics, so event loops that
+ * record at the same time do not contend on a shared counter. The stripes
+ * are summed when the histogram is drained.
+ */
+public class Histogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+
+    public Histogram() {
+        for (int i = 0; i < BUCKETS; i++)
+            counts[i] = new LongAdder();
+    }
+
+    /**
+     * @param value a duration in nanoseconds, negative values are recorded as 0.
+     */
+    public void record(long value) {
+        counts[index(Math.max(0, value))].increment();
+    }
+
+    /**
+     * Computes the percentiles of the recorded values and resets the histogram.
+     *
+     * @return the percentiles of the values recorded since the last drain.
+     */
+    public Percentiles drain() {
+        long[] drained = new long[BUCKETS];
+        long count = 0;
+        double sum = 0;
+        int highest = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            drained[i] = counts[i].sumThenReset();
+
+            if (drained[i] > 0) {
+                count += drained[i];
+                sum += drained[i] * (double) value(i);
+                highest = i;
+            }
+        }
+
+        Percentiles percentiles = new Percentiles().setCount(count);
+
+        if (count > 0) {
+            percentiles.setMean((long) (sum / count))
+                    .setP50(percentile(drained, count, 0.50))
+                    .setP90(percentile(drained, count, 0.90))
+                    .setP99(percentile(drained, count, 0.99))
+                    .setP999(percentile(drained, count, 0.999))
+                    .setMax(value(highest));
+        }
+        return percentiles;
+    }
+
+    private static long percentile(long[] counts, long count, double percentile) {
+        long rank = (long) Math.ceil(count * percentile);
+        long seen = 0;
+
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+
+            if (seen >= rank)
+                return value(i);
+        }
+        return 0;
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @return the midpoint of the values in a bucket.
+     */
+    static long value(int index) {
+        if (index < SUB_BUCKETS)
+            return index;
+
+        int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+        long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (exponent - SUB_BITS);
+        return lower + (1L << (exponent - SUB_BITS)) / 2;
+    }
+}
@@ -0,0 +1,137 @@
+package com.websocket.chat.registry.Metrics;
+
+import com.websocket.chat.registry.Protocol.IOLogger;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Created by Robin on 2016-01-09.
+ * <p>
+ * Counters and latency histograms of the registry, recorded from any event
+ * loop without allocating. Counters are striped so that the lookup service
+ * instances do not contend, they are summed when drained into the log record.
+ */
+public class Metrics {
+    private final LongAdder in = new LongAdder();
+    private final LongAdder out = new LongAdder();
+    private final LongAdder notFound = new LongAdder();
+    private final LongAdder refused = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder connections = new LongAdder();
+    private final Map<String, LongAdder> events = new ConcurrentHashMap<>();
+    private final Histogram lookupTime = new Histogram();
+    private final Histogram parseTime = new Histogram();
+    private final Histogram sendTime = new Histogram();
+    private final Histogram writeTime = new Histogram();
+    private final Histogram applyTime = new Histogram();
+    private final Histogram writerLag = new Histogram();
+
+    /**
+     * Counts an event received from a connector.
+     *
+     * @param action the action of the event.
+     */
+    public void in(String action) {
+        LongAdder counter = events.get(action);
+
+        if (counter == null)
+            counter = events.computeIfAbsent(action, key -> new LongAdder());
+
+        counter.increment();
+        in.increment();
+    }
+
+    /**
+     * Counts a lookup that has been answered.
+     *
+     * @param nanos the time from receiving the lookup to sending the answer.
+     */
+    public void out(long nanos) {
+        out.increment();
+        lookupTime.record(nanos);
+    }
+
+    public void notFound() {
+        notFound.increment();
+    }
+
+    /**
+     * Counts a connection to the lookup port that was refused by admission control.
+     */
+    public void refused() {
+        refused.increment();
+    }
+
+    /**
+     * Counts lookups that were rejected for exceeding the lookup budget.
+     *
+     * @param lookups the number of rejected lookups.
+     */
+    public void shed(int lookups) {
+        shed.add(lookups);
+    }
+
+    public void connected() {
+        connections.increment();
+    }
+
+    public void disconnected() {
+        connections.decrement();
+    }
+
+    public void parsed(long nanos) {
+        parseTime.record(nanos);
+    }
+
+    /**
+     * @param nanos the time to send a message on the event bus.
+     */
+    public void sent(long nanos) {
+        sendTime.record(nanos);
+    }
+
+    /**
+     * @param nanos the time to write an answer to a client socket.
+     */
+    public void written(long nanos) {
+        writeTime.record(nanos);
+    }
+
+    /**
+     * @param nanos the time from receiving a connector event until it was applied.
+     */
+    public void applied(long nanos) {
+        applyTime.record(nanos);
+    }
+
+    /**
+     * @param nanos the time a task of the registry writer was delayed by other tasks.
+     */
+    public void lagged(long nanos) {
+        writerLag.record(nanos);
+    }
+
+    /**
+     * @return the counters and percentiles since the last drain, which are reset.
+     */
+    public IOLogger drain() {
+        Map<String, Long> counts = new HashMap<>();
+        events.forEach((action, counter) -> counts.put(action, counter.sumThenReset()));
+
+        return new IOLogger(in.sumThenReset(), out.sumThenReset())
+                .setNotFound(notFound.sumThenReset())
+                .setRefused(refused.sumThenReset())
+                .setShed(shed.sumThenReset())
+                .setConnections(connections.sum())
+                .setEvents(counts)
+                .setLookupTime(lookupTime.drain())
+                .setParseTime(parseTime.drain())
+                .setSendTime(sendTime.drain())
+                .setWriteTime(writeTime.drain())
+                .setApplyTime(applyTime.drain())
+                .setWriterLag(writerLag.drain());
+    }
+}
@@ -0,0 +1,240 @@
+package com.websocket.chat.registry.Model;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Created by Robin on 2015-12-30.
+ * <p>
+ * Remembers which server a room was last assigned to when the room was not
+ * yet hosted by any server. Room names are chosen by clients, so the cache is
+ * bounded and evicts the least recently used room, entries may also expire.
+ * <p>
+ * Larger caches are split into segments by room name that are locked separately,
+ * so that lookups on different event loops rarely contend.
+ */
+public class AffinityCache {
+    private static final int SEGMENTS = 16;
+    private static final int SEGMENT_MIN = 64;
+    private final Segment[] segments;
+
+    /**
+     * @param capacity the maximum number of rooms to remember.
+     * @param ttl      milliseconds until an entry expires, 0 to disable expiry.
+     */
+    public AffinityCache(int capacity, long ttl) {
+        int count = 1;
+
+        while (count < SEGMENTS && capacity / (count * 2) >= SEGMENT_MIN)
+            count *= 2;
+
+        segments = new Segment[count];
+
+        for (int i = 0; i < count; i++)
+            segments[i] = new Segment(capacity / count, ttl);
+    }
+
+    /**
+     * @param room name of the room.
+     * @return the name of the server the room was last assigned to, or null.
+     */
+    public String get(String room) {
+        Segment segment = segment(room);
+
+        synchronized (segment) {
+            return segment.get(room);
+        }
+    }
+
+    public void put(String room, String server) {
+        Segment segment = segment(room);
+
+        synchronized (segment) {
+            segment.put(room, server);
+        }
+    }
+
+    /**
+     * Removes all entries that refer to a server.
+     *
+     * @param server name of the server that is no longer available.
+     */
+    public void invalidate(String server) {
+        for (Segment segment : segments)
+            synchronized (segment) {
+                segment.invalidate(server);
+            }
+    }
+
+    /**
+     * Visits the entries from the least to the most recently used within
+     * each segment, expired entries are included.
+     *
+     * @param consumer accepts the room and the server it was assigned to.
+     */
+    public void forEach(BiConsumer<String, String> consumer) {
+        for (Segment segment : segments)
+            synchronized (segment) {
+                segment.entries.forEach((room, entry) -> consumer.accept(room, entry.server));
+            }
+    }
+
+    public void clear() {
+        for (Segment segment : segments)
+            synchronized (segment) {
+                segment.clear();
+            }
+    }
+
+    public int size() {
+        int size = 0;
+
+        for (Segment segment : segments)
+            synchronized (segment) {
+                size += segment.entries.size();
+            }
+        return size;
+    }
+
+    public long getHits() {
+        long hits = 0;
+
+        for (Segment segment : segments)
+            synchronized (segment) {
+                hits += segment.hits;
+            }
+        return hits;
+    }
+
+    public long getMisses() {
+        long misses = 0;
+
+        for (Segment segment : segments)
+            synchronized (segment) {
+                misses += segment.misses;
+            }
+        return misses;
+    }
+
+    public long getEvictions() {
+        long evictions = 0;
+
+        for (Segment segment : segments)
+            synchronized (segment) {
+                evictions += segment.evictions;
+            }
+        return evictions;
+    }
+
+    public void resetStats() {
+        for (Segment segment : segments)
+            synchronized (segment) {
+                segment.hits = 0;
+                segment.misses = 0;
+                segment.evictions = 0;
+            }
+    }
+
+    private Segment segment(String room) {
+        int hash = room.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    private static class Segment {
+        private final int capacity;
+        private final long ttl;
+        private final Map<String, Set<String>> rooms = new HashMap<>();
+        private final LinkedHashMap<String, Entry> entries;
+        private long hits = 0;
+        private long misses = 0;
+        private long evictions = 0;
+
+        Segment(int capacity, long ttl) {
+            this.capacity = capacity;
+            this.ttl = ttl;
+            this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    if (size() > Segment.this.capacity) {
+                        unlink(eldest.getKey(), eldest.getValue().server);
+                        evictions += 1;
+                        return true;
+                    } else
+                        return false;
+                }
+            };
+        }
+
+        String get(String room) {
+            Entry entry = entries.get(room);
+
+            if (entry != null && ttl > 0 && entry.expires < System.currentTimeMillis()) {
+                remove(room);
+                evictions += 1;
+                entry = null;
+            }
+
+            if (entry == null) {
+                misses += 1;
+                return null;
+            } else {
+                hits += 1;
+                return entry.server;
+            }
+        }
+
+        void put(String room, String server) {
+            Entry previous = entries.put(room, new Entry(server, (ttl > 0) ? System.currentTimeMillis() + ttl : 0));
+
+            if (previous != null)
+                unlink(room, previous.server);
+
+            rooms.computeIfAbsent(server, key -> new HashSet<>()).add(room);
+        }
+
+        void invalidate(String server) {
+            Set<String> assigned = rooms.remove(server);
+
+            if (assigned != null)
+                for (String room : assigned)
+                    entries.remove(room);
+        }
+
+        void clear() {
+            entries.clear();
+            rooms.clear();
+        }
+
+        private void remove(String room) {
+            Entry entry = entries.remove(room);
+
+            if (entry != null)
+                unlink(room, entry.server);
+        }
+
+        private void unlink(String room, String server) {
+            Set<String> assigned = rooms.get(server);
+
+            if (assigned != null) {
+                assigned.remove(room);
+
+                if (assigned.isEmpty())
+                    rooms.remove(server);
+            }
+        }
+    }
+
+    private static class Entry {
+        private final String server;
+        private final long expires;
+
+        Entry(String server, long expires) {
+            this.server = server;
+            this.expires = expires;
+        }
+    }
+}
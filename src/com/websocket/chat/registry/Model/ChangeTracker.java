@@ -0,0 +1,183 @@
+package com.websocket.chat.registry.Model;
+
+import com.websocket.chat.registry.Protocol.ServerTreeDelta;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Created by Robin on 2016-01-03.
+ * <p>
+ * Records the changes made to the registry since the last log, so that only
+ * the changes have to be logged instead of the full server tree.
+ * <p>
+ * Changes are recorded by the single writer of the registry, except hits
+ * which are recorded from the lookups.
+ */
+public class ChangeTracker implements RegistryListener {
+    private Map<String, Server> added = new HashMap<>();
+    private Set<String> removed = new HashSet<>();
+    private Map<String, Set<String>> roomsAdded = new HashMap<>();
+    private Map<String, Set<String>> roomsRemoved = new HashMap<>();
+    private Map<String, Boolean> full = new HashMap<>();
+    private Map<String, Boolean> alive = new HashMap<>();
+    private Map<String, String> owner = new HashMap<>();
+    private Map<String, Integer> users = new HashMap<>();
+    private Map<String, Integer> capacity = new HashMap<>();
+    private Map<String, Double> cpu = new HashMap<>();
+    private Queue<Hit> hits = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public void addServer(Server server) {
+        forget(server.getName());
+        added.put(server.getName(), server);
+    }
+
+    @Override
+    public void removeServer(String name) {
+        forget(name);
+        added.remove(name);
+        removed.add(name);
+    }
+
+    @Override
+    public void addRoom(String server, String room) {
+        if (!added.containsKey(server))
+            roomsAdded.computeIfAbsent(server, key -> new HashSet<>()).add(room);
+    }
+
+    @Override
+    public void removeRoom(String server, String room) {
+        if (!added.containsKey(server)) {
+            Set<String> rooms = roomsAdded.get(server);
+
+            if (rooms != null && rooms.remove(room) && rooms.isEmpty())
+                roomsAdded.remove(server);
+
+            roomsRemoved.computeIfAbsent(server, key -> new HashSet<>()).add(room);
+        }
+    }
+
+    @Override
+    public void setFull(String server, boolean isFull) {
+        if (!added.containsKey(server))
+            full.put(server, isFull);
+    }
+
+    @Override
+    public void setAlive(String server, boolean isAlive) {
+        if (!added.containsKey(server))
+            alive.put(server, isAlive);
+    }
+
+    @Override
+    public void setTracked(String server, boolean isTracked) {
+    }
+
+    @Override
+    public void setOwner(String server, String owner) {
+        if (!added.containsKey(server))
+            this.owner.put(server, owner);
+    }
+
+    @Override
+    public void setLoad(String server, Integer users, Integer capacity, Double cpu) {
+        if (!added.containsKey(server)) {
+            if (users != null)
+                this.users.put(server, users);
+
+            if (capacity != null)
+                this.capacity.put(server, capacity);
+
+            if (cpu != null)
+                this.cpu.put(server, cpu);
+        }
+    }
+
+    /**
+     * Records that a room has been hit, only needs to be called on the first
+     * hit since the room was last logged.
+     */
+    public void hit(Server server, Room room) {
+        hits.add(new Hit(server, room));
+    }
+
+    /**
+     * @return the changes since the last delta or clear, the tracker is cleared.
+     */
+    public ServerTreeDelta drain() {
+        ServerTreeDelta delta = new ServerTreeDelta();
+        Hit hit;
+
+        while ((hit = hits.poll()) != null) {
+            int count = hit.room.drainUnlogged();
+
+            if (count > 0 && !added.containsKey(hit.server.getName()) &&
+                    hit.server.getRooms().get(hit.room.getName()) == hit.room) {
+                delta.getHits()
+                        .computeIfAbsent(hit.server.getName(), key -> new HashMap<>())
+                        .merge(hit.room.getName(), count, Integer::sum);
+            }
+        }
+
+        delta.setAdded(new ArrayList<>(added.values()));
+        delta.setRemoved(new ArrayList<>(removed));
+        delta.setRoomsAdded(roomsAdded);
+        delta.setRoomsRemoved(roomsRemoved);
+        delta.setFull(full);
+        delta.setAlive(alive);
+        delta.setOwner(owner);
+        delta.setUsers(users);
+        delta.setCapacity(capacity);
+        delta.setCpu(cpu);
+
+        reset();
+        return delta;
+    }
+
+    /**
+     * Discards all recorded changes, called when the full tree is logged.
+     */
+    public void clear() {
+        Hit hit;
+
+        while ((hit = hits.poll()) != null)
+            hit.room.drainUnlogged();
+
+        reset();
+    }
+
+    private void reset() {
+        added = new HashMap<>();
+        removed = new HashSet<>();
+        roomsAdded = new HashMap<>();
+        roomsRemoved = new HashMap<>();
+        full = new HashMap<>();
+        alive = new HashMap<>();
+        owner = new HashMap<>();
+        users = new HashMap<>();
+        capacity = new HashMap<>();
+        cpu = new HashMap<>();
+    }
+
+    private void forget(String server) {
+        roomsAdded.remove(server);
+        roomsRemoved.remove(server);
+        full.remove(server);
+        alive.remove(server);
+        owner.remove(server);
+        users.remove(server);
+        capacity.remove(server);
+        cpu.remove(server);
+    }
+
+    private static class Hit {
+        private final Server server;
+        private final Room room;
+
+        Hit(Server server, Room room) {
+            this.server = server;
+            this.room = room;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.websocket.chat.registry.Model;
+
+/**
+ * Created by Robin on 2016-01-05.
+ * <p>
+ * A connection from a connector-backend, servers registered over the
+ * connection are owned by the connector. A connector is known by the
+ * address of its socket until it announces a name that survives reconnects.
+ */
+public class Connector {
+    private String address;
+    private String name;
+
+    public Connector(String address) {
+        this.address = address;
+        this.name = address;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,116 @@
+package com.websocket.chat.registry.Model;
+
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Created by Robin on 2016-01-08.
+ * <p>
+ * Consistent hashing ring of the ready servers, each server is placed on the
+ * ring at a number of points derived from its name. A room is placed on the
+ * first server following the hash of the room, so every registry places a
+ * room on the same server and adding a server moves about 1/N of the rooms.
+ * <p>
+ * Servers that already host more than their share of the rooms are skipped,
+ * which bounds the number of rooms of any server to a factor of the average.
+ * <p>
+ * The ring has a single writer and may be read from any thread. The points
+ * are kept in a skip list so that adding or removing a server only updates
+ * its own points, a lookup concurrent with an update may see some of them.
+ */
+public class HashRing {
+    private final ConcurrentSkipListMap<Long, Server> points = new ConcurrentSkipListMap<>();
+    private final int replicas;
+    private final double balance;
+    private volatile int servers = 0;
+
+    /**
+     * @param replicas the number of points of each server on the ring.
+     * @param balance  the factor of the average number of rooms a server
+     *                 may host before rooms spill over to the next server.
+     */
+    public HashRing(int replicas, double balance) {
+        this.replicas = replicas;
+        this.balance = balance;
+    }
+
+    /**
+     * Adds the points of a server, the points of the other servers are kept.
+     */
+    public void add(Server server) {
+        for (int i = 0; i < replicas; i++)
+            points.putIfAbsent(hash(server.getName() + "#" + i), server);
+
+        servers += 1;
+    }
+
+    /**
+     * Removes the points of a server, the rooms of the server move to the following servers.
+     */
+    public void remove(Server server) {
+        for (int i = 0; i < replicas; i++)
+            points.remove(hash(server.getName() + "#" + i), server);
+
+        servers -= 1;
+    }
+
+    public void clear() {
+        points.clear();
+        servers = 0;
+    }
+
+    /**
+     * @param room  the name of the room to place.
+     * @param rooms the number of rooms hosted by the servers on the ring.
+     * @return the first server following the room that hosts less than the
+     * bounded share of rooms, null if the ring is empty.
+     */
+    public Server get(String room, int rooms) {
+        int count = servers;
+
+        if (count == 0)
+            return null;
+
+        int bound = (int) Math.ceil(balance * (rooms + 1) / count);
+        long hash = hash(room);
+        Server first = null;
+
+        for (Server server : points.tailMap(hash).values()) {
+            if (server.getRooms().size() < bound)
+                return server;
+
+            first = (first == null) ? server : first;
+        }
+
+        for (Server server : points.headMap(hash).values()) {
+            if (server.getRooms().size() < bound)
+                return server;
+
+            first = (first == null) ? server : first;
+        }
+        return first;
+    }
+
+    public int size() {
+        return servers;
+    }
+
+    /**
+     * FNV-1a over the characters followed by the MurmurHash3 finalizer, stable
+     * between processes unlike identity hashes.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
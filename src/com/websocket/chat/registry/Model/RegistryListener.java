@@ -0,0 +1,28 @@
+package com.websocket.chat.registry.Model;
+
+/**
+ * Created by Robin on 2016-01-05.
+ * <p>
+ * Receives the mutations applied to the registry, in order and after they
+ * have been applied. Called by the single writer of the registry.
+ */
+public interface RegistryListener {
+
+    void addServer(Server server);
+
+    void removeServer(String name);
+
+    void addRoom(String server, String room);
+
+    void removeRoom(String server, String room);
+
+    void setFull(String server, boolean isFull);
+
+    void setAlive(String server, boolean isAlive);
+
+    void setTracked(String server, boolean isTracked);
+
+    void setOwner(String server, String owner);
+
+    void setLoad(String server, Integer users, Integer capacity, Double cpu);
+}
@@ -1,27 +1,83 @@
 package com.websocket.chat.registry.Model;
 
+import com.websocket.chat.registry.Configuration;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Created by Robin on 2015-12-18.
  *
  * Room data stored in the Registry.
+ *
+ * The hits of a room are counted per interval and folded into a rate that
+ * decays exponentially, so that the popularity follows the current activity.
+ * A hit only increments the count of the current interval, the rate is
+ * updated by the single writer when the hits are drained and is decayed
+ * lazily when read.
  */
 public class Room {
+    private static final double DECAY = (double) Configuration.LOG_INTERVAL / Configuration.HIT_DECAY;
+    private static volatile long current = System.currentTimeMillis() / Configuration.LOG_INTERVAL;
     private String room;
-    private Integer hit = 1;
+    private volatile double rate = 1.0;
+    private volatile long interval = interval();
+    private final AtomicInteger unlogged = new AtomicInteger(0);
+
+    public Room() {
+    }
 
     public Room(String room) {
         this.room = room;
     }
 
-    public void hit() {
-        if (hit == Integer.MAX_VALUE)
-            hit = 0;
+    /**
+     * @return true if this is the first hit since the hits were last drained.
+     */
+    public boolean hit() {
+        return hit(1);
+    }
 
-        hit += 1;
+    /**
+     * @param count the number of hits to add.
+     * @return true if these are the first hits since the hits were last drained.
+     */
+    public boolean hit(int count) {
+        return unlogged.getAndAdd(count) == 0;
     }
 
-    public Integer getHits() {
-        return hit;
+    /**
+     * Folds the hits since the last drain into the decayed rate.
+     *
+     * @return the number of hits since the hits were last drained.
+     */
+    public int drainUnlogged() {
+        long now = interval();
+        int count = unlogged.getAndSet(0);
+
+        rate = decayed(now) + count;
+        interval = now;
+        return count;
+    }
+
+    /**
+     * @param now the current interval.
+     * @return the popularity of the room, the decayed rate and the hits of
+     * the current interval.
+     */
+    public double score(long now) {
+        return decayed(now) + unlogged.get();
+    }
+
+    /**
+     * @return the decayed number of hits, a room starts with a single hit.
+     */
+    public double getHits() {
+        return score(interval());
+    }
+
+    public void setHits(double hits) {
+        interval = interval();
+        rate = hits;
     }
 
     public String getName() {
@@ -31,4 +87,24 @@ public class Room {
     public void setName(String name) {
         this.room = name;
     }
+
+    /**
+     * Advances the interval, called once per log interval so that lookups
+     * do not have to read the system clock.
+     */
+    public static void tick() {
+        current = System.currentTimeMillis() / Configuration.LOG_INTERVAL;
+    }
+
+    /**
+     * @return the current interval, hits are decayed once per interval.
+     */
+    public static long interval() {
+        return current;
+    }
+
+    private double decayed(long now) {
+        long elapsed = now - interval;
+        return (elapsed <= 0) ? rate : rate * Math.exp(-elapsed * DECAY);
+    }
 }
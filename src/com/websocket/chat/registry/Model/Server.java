@@ -1,7 +1,10 @@
 package com.websocket.chat.registry.Model;
 
-import java.util.HashMap;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.websocket.chat.registry.Protocol.Encoded;
+
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by Robin on 2015-12-18.
@@ -12,8 +15,18 @@ public class Server {
     private String name;
     private String ip;
     private Integer port;
-    private Boolean full = false;
-    private Map<String, Room> rooms = new HashMap<>();
+    private volatile Boolean full = false;
+    private volatile boolean alive = true;
+    private volatile boolean tracked = false;
+    private String owner;
+    private volatile Integer users;
+    private volatile Integer capacity;
+    private volatile Double cpu;
+    private Map<String, Room> rooms = new ConcurrentHashMap<>();
+    private volatile Encoded index;
+
+    public Server() {
+    }
 
     public Server(String name, String ip, Integer port) {
         this.name = name;
@@ -27,6 +40,7 @@ public class Server {
 
     public void setName(String name) {
         this.name = name;
+        this.index = null;
     }
 
     public String getIp() {
@@ -35,6 +49,7 @@ public class Server {
 
     public void setIp(String ip) {
         this.ip = ip;
+        this.index = null;
     }
 
     public Integer getPort() {
@@ -43,6 +58,20 @@ public class Server {
 
     public void setPort(Integer port) {
         this.port = port;
+        this.index = null;
+    }
+
+    /**
+     * @return the encoded lookup response of the server, null when the
+     * server has changed since it was last encoded.
+     */
+    @JsonIgnore
+    public Encoded getIndex() {
+        return index;
+    }
+
+    public void setIndex(Encoded index) {
+        this.index = index;
     }
 
     public Boolean getFull() {
@@ -53,6 +82,93 @@ public class Server {
         this.full = full;
     }
 
+    /**
+     * @return false when the server has missed its heartbeats.
+     */
+    public boolean isAlive() {
+        return alive;
+    }
+
+    public void setAlive(boolean alive) {
+        this.alive = alive;
+    }
+
+    /**
+     * @return true when the server has sent heartbeats since it was added,
+     * it is then expected to keep sending them.
+     */
+    @JsonIgnore
+    public boolean isTracked() {
+        return tracked;
+    }
+
+    public void setTracked(boolean tracked) {
+        this.tracked = tracked;
+    }
+
+    /**
+     * @return the name of the connector that registered the server.
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * @return the number of connected users, null if not reported.
+     */
+    public Integer getUsers() {
+        return users;
+    }
+
+    public void setUsers(Integer users) {
+        this.users = users;
+    }
+
+    /**
+     * @return the maximum number of users, null if not reported.
+     */
+    public Integer getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(Integer capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return the cpu usage from 0.0 to 1.0, null if not reported.
+     */
+    public Double getCpu() {
+        return cpu;
+    }
+
+    public void setCpu(Double cpu) {
+        this.cpu = cpu;
+    }
+
+    /**
+     * @return the highest of the reported user ratio and cpu usage, 0.0 when
+     * no load is reported so that servers without metrics are treated equally.
+     */
+    public double getLoad() {
+        Integer users = this.users;
+        Integer capacity = this.capacity;
+        Double cpu = this.cpu;
+        double load = 0.0;
+
+        if (users != null && capacity != null && capacity > 0)
+            load = (double) users / capacity;
+
+        if (cpu != null && cpu > load)
+            load = cpu;
+
+        return load;
+    }
+
     public Map<String, Room> getRooms() {
         return rooms;
     }
@@ -0,0 +1,207 @@
+package com.websocket.chat.registry.Model;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Created by Robin on 2015-12-29.
+ * <p>
+ * Index over the servers that are ready for more clients and the servers
+ * that are hosting each room, the ready servers are also placed on a hash
+ * ring. Updated when servers and rooms change so that a lookup does not
+ * have to scan or copy the list of all servers.
+ * <p>
+ * The index has a single writer and may be read from any thread, the arrays
+ * are copied on write and never modified once published. The rooms hosted
+ * by the ready servers are counted to bound the share of rooms placed on
+ * each server of the ring.
+ */
+public class ServerIndex {
+    private static final Server[] EMPTY = new Server[0];
+    private volatile Server[] ready = EMPTY;
+    private Map<Server, Integer> position = new HashMap<>();
+    private Map<String, Server[]> rooms = new ConcurrentHashMap<>();
+    private final HashRing ring;
+    private volatile int hosted = 0;
+
+    /**
+     * @param ring the ring that the ready servers are placed on.
+     */
+    public ServerIndex(HashRing ring) {
+        this.ring = ring;
+    }
+
+    /**
+     * Adds a server and its rooms to the index.
+     *
+     * @param server the server to add, it is indexed as ready unless full
+     *               or missing heartbeats.
+     */
+    public void add(Server server) {
+        for (String room : server.getRooms().keySet())
+            addRoom(server, room);
+
+        if (!server.getFull() && server.isAlive())
+            setReady(server, true);
+    }
+
+    /**
+     * Removes a server and its rooms from the index.
+     *
+     * @param server the server to remove.
+     */
+    public void remove(Server server) {
+        setReady(server, false);
+
+        for (String room : server.getRooms().keySet())
+            removeRoom(server, room);
+    }
+
+    /**
+     * Marks a server as ready or not ready.
+     *
+     * @param server  the server to update.
+     * @param isReady true if the server accepts more clients.
+     */
+    public void setReady(Server server, boolean isReady) {
+        Integer index = position.get(server);
+
+        if (isReady && index == null) {
+            Server[] grown = new Server[ready.length + 1];
+            System.arraycopy(ready, 0, grown, 0, ready.length);
+            grown[ready.length] = server;
+            position.put(server, ready.length);
+            ready = grown;
+            ring.add(server);
+            hosted += server.getRooms().size();
+        } else if (!isReady && index != null) {
+            Server[] shrunk = new Server[ready.length - 1];
+            Server last = ready[ready.length - 1];
+            System.arraycopy(ready, 0, shrunk, 0, shrunk.length);
+            position.remove(server);
+
+            if (last != server) {
+                shrunk[index] = last;
+                position.put(last, index);
+            }
+            ready = shrunk;
+            ring.remove(server);
+            hosted -= server.getRooms().size();
+        }
+    }
+
+    public void addRoom(Server server, String room) {
+        Server[] hosts = rooms.getOrDefault(room, EMPTY);
+
+        for (Server host : hosts)
+            if (host == server)
+                return;
+
+        Server[] grown = new Server[hosts.length + 1];
+        System.arraycopy(hosts, 0, grown, 0, hosts.length);
+        grown[hosts.length] = server;
+        rooms.put(room, grown);
+
+        if (position.containsKey(server))
+            hosted += 1;
+    }
+
+    public void removeRoom(Server server, String room) {
+        Server[] hosts = rooms.get(room);
+
+        if (hosts != null) {
+            Server[] shrunk = new Server[hosts.length - 1];
+
+            for (int i = 0, k = 0; i < hosts.length; i++) {
+                if (hosts[i] != server) {
+                    if (k == shrunk.length)
+                        return;
+                    shrunk[k++] = hosts[i];
+                }
+            }
+
+            if (shrunk.length == 0)
+                rooms.remove(room);
+            else
+                rooms.put(room, shrunk);
+
+            if (position.containsKey(server))
+                hosted -= 1;
+        }
+    }
+
+    public void clear() {
+        ready = EMPTY;
+        position.clear();
+        rooms.clear();
+        ring.clear();
+        hosted = 0;
+    }
+
+    /**
+     * Picks two different ready servers at random and returns the least loaded,
+     * which spreads the load far better than a single random choice without
+     * having to scan all servers. Servers without reported load are equal.
+     *
+     * @return the least loaded of two random ready servers, or null if there are no ready servers.
+     */
+    public Server getLeastLoaded() {
+        Server[] current = ready;
+
+        if (current.length < 2)
+            return (current.length == 0) ? null : current[0];
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(current.length);
+        int second = (first + 1 + random.nextInt(current.length - 1)) % current.length;
+
+        return (current[second].getLoad() < current[first].getLoad()) ? current[second] : current[first];
+    }
+
+    /**
+     * @param room the name of the room.
+     * @return the ready server the room is placed on by the ring, null if
+     * there are no ready servers.
+     */
+    public Server getPlaced(String room) {
+        return ring.get(room, hosted);
+    }
+
+    /**
+     * Finds the ready server with the most hits on a room, only the
+     * servers that are hosting the room are visited.
+     *
+     * @param roomName name of the room.
+     * @return the ready server with the most hits for the room, null if
+     * there are no ready servers hosting the room.
+     */
+    public Server getMostHits(String roomName) {
+        Server[] hosts = rooms.getOrDefault(roomName, EMPTY);
+        Server preferred = null;
+        double best = 0;
+        long now = Room.interval();
+
+        for (Server server : hosts) {
+            Room room = server.getRooms().get(roomName);
+
+            if (room != null && !server.getFull() && server.isAlive()) {
+                double score = room.score(now);
+
+                if (preferred == null || score > best) {
+                    preferred = server;
+                    best = score;
+                }
+            }
+        }
+        return preferred;
+    }
+
+    /**
+     * @return the servers that are ready, the array must not be modified.
+     */
+    public Server[] getReady() {
+        return ready;
+    }
+}
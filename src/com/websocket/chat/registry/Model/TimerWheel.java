@@ -0,0 +1,88 @@
+package com.websocket.chat.registry.Model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Created by Robin on 2016-01-12.
+ * <p>
+ * Hashed timer wheel, timeouts are counted in ticks and kept in the slot of
+ * the tick they expire on. Scheduling and cancelling are constant time and
+ * a tick only visits the timeouts that expire on it, so any number of keys
+ * may be tracked with a single periodic timer.
+ * <p>
+ * Not thread safe, used by the single writer of the registry.
+ */
+public class TimerWheel<K> {
+    private final List<Set<K>> slots;
+    private final Map<K, Integer> scheduled = new HashMap<>();
+    private int current = 0;
+
+    /**
+     * @param size the number of slots, the longest timeout is one tick less.
+     */
+    public TimerWheel(int size) {
+        slots = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++)
+            slots.add(new HashSet<>());
+    }
+
+    /**
+     * Schedules a key to expire, replacing its previous timeout.
+     *
+     * @param key   the key to schedule.
+     * @param ticks the number of ticks until the key expires, at least 1.
+     */
+    public void schedule(K key, int ticks) {
+        if (ticks < 1 || ticks >= slots.size())
+            throw new IllegalArgumentException("Timeout of " + ticks + " ticks does not fit the wheel.");
+
+        cancel(key);
+        int slot = (current + ticks) % slots.size();
+        slots.get(slot).add(key);
+        scheduled.put(key, slot);
+    }
+
+    /**
+     * @param key the key to stop tracking.
+     */
+    public void cancel(K key) {
+        Integer slot = scheduled.remove(key);
+
+        if (slot != null)
+            slots.get(slot).remove(key);
+    }
+
+    /**
+     * Advances the wheel a single tick.
+     *
+     * @param expired receives the keys that expired on the tick, keys may be
+     *                scheduled again from the consumer.
+     */
+    public void advance(Consumer<K> expired) {
+        current = (current + 1) % slots.size();
+        Set<K> due = slots.get(current);
+
+        if (!due.isEmpty()) {
+            slots.set(current, new HashSet<>());
+
+            for (K key : due) {
+                scheduled.remove(key);
+                expired.accept(key);
+            }
+        }
+    }
+
+    /**
+     * @return the number of keys with a timeout.
+     */
+    public int size() {
+        return scheduled.size();
+    }
+}
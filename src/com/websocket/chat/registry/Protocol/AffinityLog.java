@@ -0,0 +1,75 @@
+package com.websocket.chat.registry.Protocol;
+
+import com.websocket.chat.registry.Configuration;
+import com.websocket.chat.registry.Model.AffinityCache;
+
+/**
+ * Created by Robin on 2015-12-30.
+ * <p>
+ * Contains the hit/miss/eviction counts of the room affinity cache.
+ */
+public class AffinityLog {
+    private Long hits;
+    private Long misses;
+    private Long evictions;
+    private Integer size;
+    private String name = Configuration.REGISTER_NAME;
+    private String type = "logging.affinity";
+
+    public AffinityLog() {}
+
+    public AffinityLog(AffinityCache cache) {
+        this.hits = cache.getHits();
+        this.misses = cache.getMisses();
+        this.evictions = cache.getEvictions();
+        this.size = cache.size();
+    }
+
+    public Long getHits() {
+        return hits;
+    }
+
+    public void setHits(Long hits) {
+        this.hits = hits;
+    }
+
+    public Long getMisses() {
+        return misses;
+    }
+
+    public void setMisses(Long misses) {
+        this.misses = misses;
+    }
+
+    public Long getEvictions() {
+        return evictions;
+    }
+
+    public void setEvictions(Long evictions) {
+        this.evictions = evictions;
+    }
+
+    public Integer getSize() {
+        return size;
+    }
+
+    public void setSize(Integer size) {
+        this.size = size;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+}
@@ -0,0 +1,42 @@
+package com.websocket.chat.registry.Protocol;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Created by Robin on 2016-01-05.
+ * <p>
+ * Sent from the connector-backend to announce its name, servers registered
+ * by the connector are kept when it reconnects under the same name within
+ * the grace period. Answered with a ConnectorState.
+ */
+@JsonPropertyOrder("header")
+public class ConnectorEvent {
+    public static final String ACTION = "registry.connector";
+    private Header header;
+    private String name;
+
+    public ConnectorEvent() {
+        this(null);
+    }
+
+    public ConnectorEvent(String name) {
+        this.name = name;
+        this.header = new Header(ACTION);
+    }
+
+    public Header getHeader() {
+        return header;
+    }
+
+    public void setHeader(Header header) {
+        this.header = header;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,55 @@
+package com.websocket.chat.registry.Protocol;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.websocket.chat.registry.Model.Server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Created by Robin on 2016-01-05.
+ * <p>
+ * A response to a ConnectorEvent, contains the servers and rooms that the registry
+ * holds for the connector. The connector only has to send the events that differ.
+ */
+@JsonPropertyOrder("header")
+public class ConnectorState {
+    public static final String ACTION = "registry.connector.state";
+    private Header header;
+    private String name;
+    private List<Server> servers;
+
+    public ConnectorState() {
+        this(null, new ArrayList<>());
+    }
+
+    public ConnectorState(String name, List<Server> servers) {
+        this.header = new Header(ACTION);
+        this.name = name;
+        this.servers = servers;
+    }
+
+    public Header getHeader() {
+        return header;
+    }
+
+    public void setHeader(Header header) {
+        this.header = header;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public List<Server> getServers() {
+        return servers;
+    }
+
+    public void setServers(List<Server> servers) {
+        this.servers = servers;
+    }
+}
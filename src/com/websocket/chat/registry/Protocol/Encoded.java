@@ -0,0 +1,27 @@
+package com.websocket.chat.registry.Protocol;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Created by Robin on 2016-01-10.
+ * <p>
+ * A message that is packed once, as JSON text and as Smile, so that it
+ * may be sent any number of times without being serialized again.
+ */
+public class Encoded {
+    private final String text;
+    private final Buffer binary;
+
+    public Encoded(Object message) {
+        this.text = Serializer.pack(message);
+        this.binary = Buffer.buffer(Serializer.packBinary(message));
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public Buffer getBinary() {
+        return binary;
+    }
+}
@@ -0,0 +1,57 @@
+package com.websocket.chat.registry.Protocol;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Created by Robin on 2016-01-02.
+ * <p>
+ * Sent from the connector-backend with an ordered list of room
+ * and server events that are applied in order, one after the other.
+ * <p>
+ * The events are bound to the formats of their actions as the batch is
+ * read, events without a registered format are unpacked without a message.
+ */
+@JsonPropertyOrder("header")
+public class EventBatch {
+    public static final String ACTION = "registry.events";
+    private Header header;
+    @JsonSerialize(contentUsing = Serializer.PacketWriter.class)
+    @JsonDeserialize(contentUsing = Serializer.PacketReader.class)
+    private List<Packet> events = new ArrayList<>();
+
+    public EventBatch() {
+        this.header = new Header(ACTION);
+    }
+
+    /**
+     * Adds an event to the end of the batch.
+     *
+     * @param event a RoomEvent or ServerEvent.
+     * @return fluent.
+     */
+    public EventBatch add(Object event) {
+        events.add(new Packet(null, event));
+        return this;
+    }
+
+    public Header getHeader() {
+        return header;
+    }
+
+    public void setHeader(Header header) {
+        this.header = header;
+    }
+
+    public List<Packet> getEvents() {
+        return events;
+    }
+
+    public void setEvents(List<Packet> events) {
+        this.events = events;
+    }
+}
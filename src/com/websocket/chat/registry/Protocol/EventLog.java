@@ -0,0 +1,45 @@
+package com.websocket.chat.registry.Protocol;
+
+import com.websocket.chat.registry.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Created by Robin on 2016-01-02.
+ * <p>
+ * Contains the number of events applied from a batch, by action.
+ */
+public class EventLog {
+    private Map<String, Integer> events = new HashMap<>();
+    private String name = Configuration.REGISTER_NAME;
+    private String type = "logging.events";
+
+    public void add(String action) {
+        events.merge(action, 1, Integer::sum);
+    }
+
+    public Map<String, Integer> getEvents() {
+        return events;
+    }
+
+    public void setEvents(Map<String, Integer> events) {
+        this.events = events;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+}
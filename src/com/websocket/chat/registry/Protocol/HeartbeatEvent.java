@@ -0,0 +1,42 @@
+package com.websocket.chat.registry.Protocol;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Created by Robin on 2016-01-12.
+ * <p>
+ * Sent periodically by a connector for each live server, a server that has
+ * sent a heartbeat is marked as not ready when heartbeats are missed and
+ * is removed when they stay missing.
+ */
+@JsonPropertyOrder("header")
+public class HeartbeatEvent {
+    public static final String ACTION = "registry.heartbeat";
+    private Header header;
+    private String name;
+
+    public HeartbeatEvent(String name) {
+        this();
+        this.name = name;
+    }
+
+    public HeartbeatEvent() {
+        this.header = new Header(ACTION);
+    }
+
+    public Header getHeader() {
+        return header;
+    }
+
+    public void setHeader(Header header) {
+        this.header = header;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
@@ -2,40 +2,179 @@ package com.websocket.chat.registry.Protocol;
 
 import com.websocket.chat.registry.Configuration;
 
+import java.util.Map;
+
 /**
  * Created by Robin on 2015-12-28.
  * <p>
- * Contains the number of hits on the service.
+ * Contains the number of hits on the service, the events received per action
+ * and the percentiles of the lookup, parse, send and write times, along with
+ * the counters of the admission control on the lookup port.
  */
 public class IOLogger {
-    private Integer in;
-    private Integer out;
+    private long in;
+    private long out;
+    private long notFound;
+    private long refused;
+    private long shed;
+    private long connections;
+    private Map<String, Long> events;
+    private Percentiles lookupTime;
+    private Percentiles parseTime;
+    private Percentiles sendTime;
+    private Percentiles writeTime;
+    private Percentiles applyTime;
+    private Percentiles writerLag;
     private String name = Configuration.REGISTER_NAME;
     private String type = "logging.io";
 
     public IOLogger() {}
 
-    public IOLogger(Integer in, Integer out) {
+    public IOLogger(long in, long out) {
         this.in = in;
         this.out = out;
     }
 
-    public Integer getOut() {
+    public long getOut() {
         return out;
     }
 
-    public void setOut(Integer out) {
+    public void setOut(long out) {
         this.out = out;
     }
 
-    public Integer getIn() {
+    public long getIn() {
         return in;
     }
 
-    public void setIn(Integer in) {
+    public void setIn(long in) {
         this.in = in;
     }
 
+    /**
+     * @return the number of lookups that found no ready server.
+     */
+    public long getNotFound() {
+        return notFound;
+    }
+
+    public IOLogger setNotFound(long notFound) {
+        this.notFound = notFound;
+        return this;
+    }
+
+    /**
+     * @return the number of connections refused by admission control.
+     */
+    public long getRefused() {
+        return refused;
+    }
+
+    public IOLogger setRefused(long refused) {
+        this.refused = refused;
+        return this;
+    }
+
+    /**
+     * @return the number of lookups rejected for exceeding the lookup budget.
+     */
+    public long getShed() {
+        return shed;
+    }
+
+    public IOLogger setShed(long shed) {
+        this.shed = shed;
+        return this;
+    }
+
+    /**
+     * @return the number of open client connections when the record was created.
+     */
+    public long getConnections() {
+        return connections;
+    }
+
+    public IOLogger setConnections(long connections) {
+        this.connections = connections;
+        return this;
+    }
+
+    public Map<String, Long> getEvents() {
+        return events;
+    }
+
+    public IOLogger setEvents(Map<String, Long> events) {
+        this.events = events;
+        return this;
+    }
+
+    public Percentiles getLookupTime() {
+        return lookupTime;
+    }
+
+    public IOLogger setLookupTime(Percentiles lookupTime) {
+        this.lookupTime = lookupTime;
+        return this;
+    }
+
+    public Percentiles getParseTime() {
+        return parseTime;
+    }
+
+    public IOLogger setParseTime(Percentiles parseTime) {
+        this.parseTime = parseTime;
+        return this;
+    }
+
+    /**
+     * @return the time to send a message on the event bus.
+     */
+    public Percentiles getSendTime() {
+        return sendTime;
+    }
+
+    public IOLogger setSendTime(Percentiles sendTime) {
+        this.sendTime = sendTime;
+        return this;
+    }
+
+    /**
+     * @return the time to write an answer to a client socket.
+     */
+    public Percentiles getWriteTime() {
+        return writeTime;
+    }
+
+    public IOLogger setWriteTime(Percentiles writeTime) {
+        this.writeTime = writeTime;
+        return this;
+    }
+
+    /**
+     * @return the time from receiving a connector event until it was applied.
+     */
+    public Percentiles getApplyTime() {
+        return applyTime;
+    }
+
+    public IOLogger setApplyTime(Percentiles applyTime) {
+        this.applyTime = applyTime;
+        return this;
+    }
+
+    /**
+     * @return the delay of the registry writer, together with the apply time
+     * it bounds how stale the registry read by lookups may be.
+     */
+    public Percentiles getWriterLag() {
+        return writerLag;
+    }
+
+    public IOLogger setWriterLag(Percentiles writerLag) {
+        this.writerLag = writerLag;
+        return this;
+    }
+
     public String getName() {
         return name;
     }
@@ -51,17 +190,4 @@ public class IOLogger {
     public void setType(String type) {
         this.type = type;
     }
-
-    public void in() {
-        in += 1;
-    }
-
-    public void reset() {
-        this.in = 0;
-        this.out = 0;
-    }
-
-    public void out() {
-        out += 1;
-    }
 }
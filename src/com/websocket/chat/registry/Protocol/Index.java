@@ -1,5 +1,6 @@
 package com.websocket.chat.registry.Protocol;
 
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import com.websocket.chat.registry.Model.Server;
 
 /**
@@ -7,7 +8,9 @@ import com.websocket.chat.registry.Model.Server;
  *
  * A response to a Lookup.
  */
+@JsonPropertyOrder("header")
 public class Index {
+    public static final Encoded FULL = new Encoded(new Index().setFull(true));
     private Header header;
     private String ip;
     private String name;
@@ -25,6 +28,21 @@ public class Index {
         this.port = server.getPort();
     }
 
+    /**
+     * @param server the server to answer a lookup with.
+     * @return the encoded index of the server, which is cached on the server
+     * until its name, ip or port changes.
+     */
+    public static Encoded encoded(Server server) {
+        Encoded index = server.getIndex();
+
+        if (index == null) {
+            index = new Encoded(new Index(server));
+            server.setIndex(index);
+        }
+        return index;
+    }
+
     public Boolean getFull() {
         return full;
     }
@@ -0,0 +1,42 @@
+package com.websocket.chat.registry.Protocol;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Created by Robin on 2016-01-02.
+ *
+ * A response to a LookupBatch, contains an Index for each room in the order requested.
+ */
+@JsonPropertyOrder("header")
+public class IndexBatch {
+    private Header header;
+    private List<Index> indexes;
+
+    public IndexBatch() {
+        this(new ArrayList<>());
+    }
+
+    public IndexBatch(List<Index> indexes) {
+        this.header = new Header("lookup.index.batch");
+        this.indexes = indexes;
+    }
+
+    public Header getHeader() {
+        return header;
+    }
+
+    public void setHeader(Header header) {
+        this.header = header;
+    }
+
+    public List<Index> getIndexes() {
+        return indexes;
+    }
+
+    public void setIndexes(List<Index> indexes) {
+        this.indexes = indexes;
+    }
+}
@@ -1,10 +1,13 @@
 package com.websocket.chat.registry.Protocol;
 
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
 /**
  * Created by Robin on 2015-12-18.
  *
  * A request for a server.
  */
+@JsonPropertyOrder("header")
 public class Lookup {
     public static final String ACTION = "registry.lookup";
     private Header header;
@@ -0,0 +1,46 @@
+package com.websocket.chat.registry.Protocol;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Created by Robin on 2016-01-02.
+ *
+ * A request for a server for each of a list of rooms.
+ */
+@JsonPropertyOrder("header")
+public class LookupBatch {
+    public static final String ACTION = "registry.lookup.batch";
+    private Header header;
+    private List<String> rooms;
+
+    public LookupBatch() {
+        this(new ArrayList<>());
+    }
+
+    public LookupBatch(List<String> rooms) {
+        this.rooms = rooms;
+        this.header = new Header(ACTION);
+    }
+
+    public Header getHeader() {
+        return header;
+    }
+
+    public void setHeader(Header header) {
+        this.header = header;
+    }
+
+    public List<String> getRooms() {
+        return rooms;
+    }
+
+    /**
+     * @param rooms the rooms to look up, null is treated as no rooms.
+     */
+    public void setRooms(List<String> rooms) {
+        this.rooms = (rooms == null) ? new ArrayList<>() : rooms;
+    }
+}
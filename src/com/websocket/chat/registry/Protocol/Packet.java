@@ -4,9 +4,20 @@ package com.websocket.chat.registry.Protocol;
  * Created by Robin on 2015-12-18.
  *
  * Generic container for partial unpacking to inspect the action/message type.
+ * When unpacked with a set of formats the message contains the packet bound to
+ * the format of its action.
  */
 public class Packet {
     private Header header;
+    private Object message;
+
+    public Packet() {
+    }
+
+    public Packet(Header header, Object message) {
+        this.header = header;
+        this.message = message;
+    }
 
     public Header getHeader() {
         return header;
@@ -17,6 +28,10 @@ public class Packet {
     }
 
     public String getAction() {
-        return header.getAction();
+        return (header == null) ? null : header.getAction();
+    }
+
+    public Object getMessage() {
+        return message;
     }
 }
@@ -0,0 +1,79 @@
+package com.websocket.chat.registry.Protocol;
+
+/**
+ * Created by Robin on 2016-01-09.
+ * <p>
+ * Percentiles of durations recorded in a log interval, in nanoseconds.
+ */
+public class Percentiles {
+    private long count;
+    private long mean;
+    private long p50;
+    private long p90;
+    private long p99;
+    private long p999;
+    private long max;
+
+    public long getCount() {
+        return count;
+    }
+
+    public Percentiles setCount(long count) {
+        this.count = count;
+        return this;
+    }
+
+    public long getMean() {
+        return mean;
+    }
+
+    public Percentiles setMean(long mean) {
+        this.mean = mean;
+        return this;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public Percentiles setP50(long p50) {
+        this.p50 = p50;
+        return this;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public Percentiles setP90(long p90) {
+        this.p90 = p90;
+        return this;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public Percentiles setP99(long p99) {
+        this.p99 = p99;
+        return this;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+
+    public Percentiles setP999(long p999) {
+        this.p999 = p999;
+        return this;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public Percentiles setMax(long max) {
+        this.max = max;
+        return this;
+    }
+}
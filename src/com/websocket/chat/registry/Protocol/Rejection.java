@@ -0,0 +1,42 @@
+package com.websocket.chat.registry.Protocol;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.websocket.chat.registry.Configuration;
+
+/**
+ * Created by Robin on 2016-01-11.
+ * <p>
+ * A response to a lookup that exceeded the lookup budget of the client,
+ * the lookup may be retried after the given number of milliseconds.
+ */
+@JsonPropertyOrder("header")
+public class Rejection {
+    public static final String ACTION = "lookup.rejected";
+    public static final Encoded REJECTED = new Encoded(new Rejection(Configuration.LOOKUP_RETRY));
+    private Header header;
+    private long retry;
+
+    public Rejection() {
+    }
+
+    public Rejection(long retry) {
+        this.header = new Header(ACTION);
+        this.retry = retry;
+    }
+
+    public Header getHeader() {
+        return header;
+    }
+
+    public void setHeader(Header header) {
+        this.header = header;
+    }
+
+    public long getRetry() {
+        return retry;
+    }
+
+    public void setRetry(long retry) {
+        this.retry = retry;
+    }
+}
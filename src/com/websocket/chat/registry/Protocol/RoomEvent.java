@@ -1,11 +1,14 @@
 package com.websocket.chat.registry.Protocol;
 
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
 /**
  * Created by Robin on 2015-12-18.
  * <p>
  * Received from the connector-backend to indicate
  * which servers have users in which rooms.
  */
+@JsonPropertyOrder("header")
 public class RoomEvent {
     public static final String ACTION = "registry.room";
     private RoomStatus status;
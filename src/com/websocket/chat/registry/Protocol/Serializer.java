@@ -1,18 +1,67 @@
 package com.websocket.chat.registry.Protocol;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.dataformat.smile.SmileConstants;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by Robin on 2015-12-16.
  *
  * Serializes objects to JSON and back.
+ *
+ * Objects may also be packed as Smile, the binary encoding of JSON, which is
+ * smaller and faster to read and write. Smile data starts with a header that
+ * never starts JSON text, so unpacking detects the encoding by itself.
+ *
+ * Readers and writers are immutable and thread-safe, they are created once
+ * per class and shared so that the mapper configuration and the
+ * (de)serializer lookups are not repeated for every message.
  */
 public abstract class Serializer {
+    private static final String FORMATS = "formats";
+    private static final ObjectMapper mapper = configure(new ObjectMapper());
+    private static final ObjectMapper smile = configure(new ObjectMapper(new SmileFactory()));
+    private static final Map<Class, ObjectReader> readers = new ConcurrentHashMap<>();
+    private static final Map<Class, ObjectWriter> writers = new ConcurrentHashMap<>();
+    private static final Map<Class, ObjectReader> binaryReaders = new ConcurrentHashMap<>();
+    private static final Map<Class, ObjectWriter> binaryWriters = new ConcurrentHashMap<>();
+
+    static {
+        for (Class format : new Class[]{
+                Header.class, Packet.class, Lookup.class, Index.class, LookupBatch.class,
+                IndexBatch.class, RoomEvent.class, ServerEvent.class, IOLogger.class,
+                ServerTreeLog.class, AffinityLog.class, EventBatch.class, EventLog.class,
+                UploaderLog.class, ServerTreeDelta.class, ConnectorEvent.class,
+                ConnectorState.class, HeartbeatEvent.class}) {
+            readers.put(format, mapper.readerFor(format));
+            writers.put(format, mapper.writerFor(format));
+            binaryReaders.put(format, smile.readerFor(format));
+            binaryWriters.put(format, smile.writerFor(format));
+        }
+    }
+
+    private static ObjectMapper configure(ObjectMapper mapper) {
+        return mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
 
     /**
      * Serializes an object as JSON.
@@ -21,14 +70,50 @@ public abstract class Serializer {
      */
     public static String pack(Object object) {
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
-            return mapper.writeValueAsString(object);
+            return writer(object.getClass()).writeValueAsString(object);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Error parsing POJO.");
+        }
+    }
+
+    /**
+     * Serializes an object as Smile.
+     * @param object containing simple types that allow JSON transform.
+     * @return the Smile encoding of the object, including the header.
+     */
+    public static byte[] packBinary(Object object) {
+        try {
+            return writer(object.getClass(), true).writeValueAsBytes(object);
         } catch (JsonProcessingException e) {
             throw new RuntimeException("Error parsing POJO.");
         }
     }
 
+    /**
+     * @param data the bytes of a frame.
+     * @return true if the data is Smile encoded, false if it is JSON text.
+     */
+    public static boolean isBinary(byte[] data) {
+        return data.length >= 3 &&
+                data[0] == SmileConstants.HEADER_BYTE_1 &&
+                data[1] == SmileConstants.HEADER_BYTE_2 &&
+                data[2] == SmileConstants.HEADER_BYTE_3;
+    }
+
+    /**
+     * Deserializes JSON or Smile bytes into an object.
+     * @param data bytes containing the object values.
+     * @param format class to be populated with the key/value pair.
+     * @return an unpacked object.
+     */
+    public static Object unpack(byte[] data, Class format) {
+        try {
+            return reader(format, isBinary(data)).readValue(data);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
     /**
      * Deserializes a JSON string into an object.
      * @param json String containing the object values.
@@ -37,11 +122,121 @@ public abstract class Serializer {
      */
     public static Object unpack(String json, Class format) {
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-            return mapper.readValue(json, format);
+            return reader(format).readValue(json);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    /**
+     * Unpacks a packet in a single pass, the header is read first and the
+     * remaining fields are bound directly to the format registered for its action.
+     * Packets where the header is not the first field are read into a tree
+     * and bound from the tree.
+     * @param json bytes containing a JSON or Smile packet.
+     * @param formats the classes to bind packets to, by action.
+     * @return the packet with its message bound, the message is null if the
+     * action has no registered format.
+     */
+    public static Packet unpack(byte[] json, Map<String, Class> formats) {
+        boolean binary = isBinary(json);
+
+        try (JsonParser parser = (binary ? smile : mapper).getFactory().createParser(json)) {
+            parser.nextToken();
+            return unpack(parser, formats);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    /**
+     * Unpacks a packet from a parser positioned at the start of the packet,
+     * packets nested in the message are bound with the same formats.
+     */
+    private static Packet unpack(JsonParser parser, Map<String, Class> formats) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.START_OBJECT &&
+                parser.nextToken() == JsonToken.FIELD_NAME &&
+                parser.getCurrentName().equals("header")) {
+
+            parser.nextToken();
+            Header header = reader(Header.class).readValue(parser);
+            Class format = (header == null) ? null : formats.get(header.getAction());
+            Object message = null;
+
+            if (parser.nextToken() == JsonToken.END_OBJECT) {
+                if (format != null)
+                    message = reader(format).readValue("{}");
+            } else if (format != null) {
+                message = reader(format).withAttribute(FORMATS, formats).readValue(parser);
+            } else {
+                while (parser.getCurrentToken() != JsonToken.END_OBJECT) {
+                    parser.nextToken();
+                    parser.skipChildren();
+                    parser.nextToken();
+                }
+            }
+            return new Packet(header, message);
+        } else {
+            return unpack(parser.<JsonNode>readValueAsTree(), formats);
+        }
+    }
+
+    /**
+     * Unpacks a packet that has already been read into a tree.
+     * @param tree the packet as a tree.
+     * @param formats the classes to bind packets to, by action.
+     * @return the packet with its message bound, the message is null if the
+     * action has no registered format.
+     */
+    public static Packet unpack(JsonNode tree, Map<String, Class> formats) {
+        try {
+            JsonNode node = tree.get("header");
+            Header header = (node == null) ? null : reader(Header.class).readValue(node);
+            Class format = (header == null) ? null : formats.get(header.getAction());
+            Object message = (format == null) ? null : reader(format).withAttribute(FORMATS, formats).readValue(tree);
+
+            return new Packet(header, message);
         } catch (IOException e) {
             throw new RuntimeException(e.getMessage());
         }
     }
+
+    private static ObjectReader reader(Class format) {
+        return readers.computeIfAbsent(format, mapper::readerFor);
+    }
+
+    private static ObjectReader reader(Class format, boolean binary) {
+        return (binary) ? binaryReaders.computeIfAbsent(format, smile::readerFor) : reader(format);
+    }
+
+    private static ObjectWriter writer(Class format) {
+        return writers.computeIfAbsent(format, mapper::writerFor);
+    }
+
+    private static ObjectWriter writer(Class format, boolean binary) {
+        return (binary) ? binaryWriters.computeIfAbsent(format, smile::writerFor) : writer(format);
+    }
+
+    /**
+     * Binds a packet that is part of another packet to the format of its
+     * action as it is read, using the formats the outer packet is unpacked with.
+     */
+    public static class PacketReader extends JsonDeserializer<Packet> {
+        @Override
+        @SuppressWarnings("unchecked")
+        public Packet deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            Map<String, Class> formats = (Map<String, Class>) context.getAttribute(FORMATS);
+            return unpack(parser, (formats == null) ? new HashMap<>() : formats);
+        }
+    }
+
+    /**
+     * Writes a packet that is part of another packet as its message.
+     */
+    public static class PacketWriter extends JsonSerializer<Packet> {
+        @Override
+        public void serialize(Packet packet, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            provider.defaultSerializeValue(packet.getMessage(), generator);
+        }
+    }
 }
@@ -1,15 +1,24 @@
 package com.websocket.chat.registry.Protocol;
 
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
 /**
  * Created by Robin on 2015-12-18.
  * <p>
  * Sent from the connector, indicating a chatservers state.
+ * <p>
+ * The load metrics are optional and may be sent with any status but DOWN,
+ * or with the LOAD status when only the load has changed.
  */
+@JsonPropertyOrder("header")
 public class ServerEvent {
     public static final String ACTION = "registry.server";
     private String name;
     private String ip;
     private Integer port;
+    private Integer users;
+    private Integer capacity;
+    private Double cpu;
     private Header header;
     private ServerStatus status;
 
@@ -55,6 +64,40 @@ public class ServerEvent {
         return this;
     }
 
+    public Integer getUsers() {
+        return users;
+    }
+
+    public ServerEvent setUsers(Integer users) {
+        this.users = users;
+        return this;
+    }
+
+    public Integer getCapacity() {
+        return capacity;
+    }
+
+    public ServerEvent setCapacity(Integer capacity) {
+        this.capacity = capacity;
+        return this;
+    }
+
+    public Double getCpu() {
+        return cpu;
+    }
+
+    public ServerEvent setCpu(Double cpu) {
+        this.cpu = cpu;
+        return this;
+    }
+
+    /**
+     * @return true if any load metric is reported.
+     */
+    public boolean hasLoad() {
+        return users != null || capacity != null || cpu != null;
+    }
+
     public Header getHeader() {
         return header;
     }
@@ -74,7 +117,7 @@ public class ServerEvent {
     }
 
     public enum ServerStatus {
-        UP, DOWN, FULL, READY
+        UP, DOWN, FULL, READY, LOAD
     }
 
     ;
@@ -0,0 +1,152 @@
+package com.websocket.chat.registry.Protocol;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.websocket.chat.registry.Configuration;
+import com.websocket.chat.registry.Model.Server;
+
+import java.util.*;
+
+/**
+ * Created by Robin on 2016-01-03.
+ * <p>
+ * Contains the changes to the tree of registered servers since the
+ * last ServerTreeLog or ServerTreeDelta. Removals are applied before
+ * additions, hits are the number of hits added to each room. The state
+ * and load of servers that were not added hold the latest values.
+ */
+public class ServerTreeDelta {
+    private Long sequence;
+    private List<Server> added = new ArrayList<>();
+    private List<String> removed = new ArrayList<>();
+    private Map<String, Set<String>> roomsAdded = new HashMap<>();
+    private Map<String, Set<String>> roomsRemoved = new HashMap<>();
+    private Map<String, Boolean> full = new HashMap<>();
+    private Map<String, Boolean> alive = new HashMap<>();
+    private Map<String, String> owner = new HashMap<>();
+    private Map<String, Integer> users = new HashMap<>();
+    private Map<String, Integer> capacity = new HashMap<>();
+    private Map<String, Double> cpu = new HashMap<>();
+    private Map<String, Map<String, Integer>> hits = new HashMap<>();
+    private String type = "logging.servers.delta";
+    private String name = Configuration.REGISTER_NAME;
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && roomsAdded.isEmpty() &&
+                roomsRemoved.isEmpty() && full.isEmpty() && alive.isEmpty() && owner.isEmpty() &&
+                users.isEmpty() && capacity.isEmpty() && cpu.isEmpty() && hits.isEmpty();
+    }
+
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public ServerTreeDelta setSequence(Long sequence) {
+        this.sequence = sequence;
+        return this;
+    }
+
+    public List<Server> getAdded() {
+        return added;
+    }
+
+    public void setAdded(List<Server> added) {
+        this.added = added;
+    }
+
+    public List<String> getRemoved() {
+        return removed;
+    }
+
+    public void setRemoved(List<String> removed) {
+        this.removed = removed;
+    }
+
+    public Map<String, Set<String>> getRoomsAdded() {
+        return roomsAdded;
+    }
+
+    public void setRoomsAdded(Map<String, Set<String>> roomsAdded) {
+        this.roomsAdded = roomsAdded;
+    }
+
+    public Map<String, Set<String>> getRoomsRemoved() {
+        return roomsRemoved;
+    }
+
+    public void setRoomsRemoved(Map<String, Set<String>> roomsRemoved) {
+        this.roomsRemoved = roomsRemoved;
+    }
+
+    public Map<String, Boolean> getFull() {
+        return full;
+    }
+
+    public void setFull(Map<String, Boolean> full) {
+        this.full = full;
+    }
+
+    public Map<String, Boolean> getAlive() {
+        return alive;
+    }
+
+    public void setAlive(Map<String, Boolean> alive) {
+        this.alive = alive;
+    }
+
+    public Map<String, String> getOwner() {
+        return owner;
+    }
+
+    public void setOwner(Map<String, String> owner) {
+        this.owner = owner;
+    }
+
+    public Map<String, Integer> getUsers() {
+        return users;
+    }
+
+    public void setUsers(Map<String, Integer> users) {
+        this.users = users;
+    }
+
+    public Map<String, Integer> getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(Map<String, Integer> capacity) {
+        this.capacity = capacity;
+    }
+
+    public Map<String, Double> getCpu() {
+        return cpu;
+    }
+
+    public void setCpu(Map<String, Double> cpu) {
+        this.cpu = cpu;
+    }
+
+    public Map<String, Map<String, Integer>> getHits() {
+        return hits;
+    }
+
+    public void setHits(Map<String, Map<String, Integer>> hits) {
+        this.hits = hits;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
@@ -13,6 +13,7 @@ import java.util.Map;
  * Contains a tree of all the registered servers.
  */
 public class ServerTreeLog {
+    private Long sequence;
     private Collection<Server> servers;
     private String type = "logging.servers";
     private String name = Configuration.REGISTER_NAME;
@@ -21,6 +22,15 @@ public class ServerTreeLog {
         this.servers = servers.values();
     }
 
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public ServerTreeLog setSequence(Long sequence) {
+        this.sequence = sequence;
+        return this;
+    }
+
     public Collection<Server> getServers() {
         return servers;
     }
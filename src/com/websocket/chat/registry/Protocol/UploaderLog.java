@@ -0,0 +1,83 @@
+package com.websocket.chat.registry.Protocol;
+
+import com.websocket.chat.registry.Configuration;
+
+/**
+ * Created by Robin on 2016-01-03.
+ * <p>
+ * Contains the number of log messages uploaded and dropped by the logger.
+ */
+public class UploaderLog {
+    private Integer sent = 0;
+    private Integer dropped = 0;
+    private Integer reconnects = 0;
+    private Integer queued = 0;
+    private String name = Configuration.REGISTER_NAME;
+    private String type = "logging.uploader";
+
+    public Integer getSent() {
+        return sent;
+    }
+
+    public void setSent(Integer sent) {
+        this.sent = sent;
+    }
+
+    public Integer getDropped() {
+        return dropped;
+    }
+
+    public void setDropped(Integer dropped) {
+        this.dropped = dropped;
+    }
+
+    public Integer getReconnects() {
+        return reconnects;
+    }
+
+    public void setReconnects(Integer reconnects) {
+        this.reconnects = reconnects;
+    }
+
+    public Integer getQueued() {
+        return queued;
+    }
+
+    public void setQueued(Integer queued) {
+        this.queued = queued;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public void sent() {
+        sent += 1;
+    }
+
+    public void dropped() {
+        dropped += 1;
+    }
+
+    public void reconnect() {
+        reconnects += 1;
+    }
+
+    public void reset() {
+        sent = 0;
+        dropped = 0;
+        reconnects = 0;
+    }
+}
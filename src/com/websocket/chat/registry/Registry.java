@@ -0,0 +1,307 @@
+package com.websocket.chat.registry;
+
+import com.websocket.chat.registry.Exception.NoServersFound;
+import com.websocket.chat.registry.Metrics.Metrics;
+import com.websocket.chat.registry.Model.AffinityCache;
+import com.websocket.chat.registry.Model.ChangeTracker;
+import com.websocket.chat.registry.Model.HashRing;
+import com.websocket.chat.registry.Model.RegistryListener;
+import com.websocket.chat.registry.Model.Room;
+import com.websocket.chat.registry.Model.Server;
+import com.websocket.chat.registry.Model.ServerIndex;
+import com.websocket.chat.registry.Selection.AffinityStrategy;
+import com.websocket.chat.registry.Selection.RegistryView;
+import com.websocket.chat.registry.Selection.SelectionStrategy;
+import io.vertx.core.shareddata.Shareable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Created by Robin on 2015-12-31.
+ * <p>
+ * The registered servers and rooms, shared between the registry service and
+ * the lookup service instances. Updates are only made by the registry service
+ * which is the single writer, lookups may be performed from any event loop.
+ */
+public class Registry implements Shareable, RegistryView {
+    private volatile State state = new State();
+    private Metrics metrics = new Metrics();
+    private ChangeTracker changes = new ChangeTracker();
+    private List<RegistryListener> listeners = new ArrayList<>();
+    private volatile SelectionStrategy strategy = new AffinityStrategy();
+
+    public Registry() {
+        listeners.add(changes);
+    }
+
+    /**
+     * Returns a single server that is ready for more clients.
+     *
+     * @param roomName the room the client is joining, the server is selected
+     *                 by the selection strategy. Hits are counted when the
+     *                 selected server is hosting the room.
+     * @return A single server selected by the current strategy.
+     * @throws NoServersFound if no servers are subscribed on the connector
+     *                        or if all subscribed connectors are full.
+     */
+    public Server getReadyServer(String roomName) throws NoServersFound {
+        Server server = strategy.select(roomName, this);
+        hit(server, roomName, 1);
+        return server;
+    }
+
+    /**
+     * Counts hits on a room for clients that were sent to a server without
+     * a selection of their own, as when lookups are coalesced.
+     *
+     * @param server   the server the clients were sent to.
+     * @param roomName the room the clients are joining.
+     * @param hits     the number of clients.
+     */
+    public void hit(Server server, String roomName, int hits) {
+        Room room = server.getRooms().get(roomName);
+
+        if (room != null && room.hit(hits))
+            changes.hit(server, room);
+    }
+
+    /**
+     * @param strategy the strategy used for lookups from now on.
+     */
+    public void setStrategy(SelectionStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    public SelectionStrategy getStrategy() {
+        return strategy;
+    }
+
+    @Override
+    public Server getServer(String name) {
+        return state.servers.get(name);
+    }
+
+    @Override
+    public Server[] getReady() {
+        return state.index.getReady();
+    }
+
+    @Override
+    public Server getMostHits(String room) {
+        return state.index.getMostHits(room);
+    }
+
+    @Override
+    public Server getPlaced(String room) {
+        return state.index.getPlaced(room);
+    }
+
+    @Override
+    public Server getLeastLoaded() {
+        return state.index.getLeastLoaded();
+    }
+
+    public void removeRoom(String name, String room) {
+        Server server = state.servers.get(name);
+
+        if (server != null) {
+            state.index.removeRoom(server, room);
+            server.getRooms().remove(room);
+            listeners.forEach(listener -> listener.removeRoom(name, room));
+        }
+    }
+
+    public void addRoom(String name, Room room) {
+        Server server = state.servers.get(name);
+
+        if (server != null) {
+            server.getRooms().put(room.getName(), room);
+            state.index.addRoom(server, room.getName());
+            listeners.forEach(listener -> listener.addRoom(name, room.getName()));
+        }
+    }
+
+    public void setFull(String name, boolean isFull) {
+        Server server = state.servers.get(name);
+
+        if (server != null) {
+            server.setFull(isFull);
+            state.index.setReady(server, !isFull && server.isAlive());
+            listeners.forEach(listener -> listener.setFull(name, isFull));
+
+            if (isFull)
+                state.lastPolled.invalidate(name);
+        }
+    }
+
+    /**
+     * Marks a server as alive or as missing its heartbeats, a server that is
+     * not alive is not selected for lookups until it is alive again.
+     */
+    public void setAlive(String name, boolean isAlive) {
+        Server server = state.servers.get(name);
+
+        if (server != null) {
+            server.setAlive(isAlive);
+            state.index.setReady(server, isAlive && !server.getFull());
+            listeners.forEach(listener -> listener.setAlive(name, isAlive));
+
+            if (!isAlive)
+                state.lastPolled.invalidate(name);
+        }
+    }
+
+    /**
+     * Marks a server as sending heartbeats, so that its heartbeats are
+     * expected again when the registry is restored.
+     */
+    public void setTracked(String name, boolean isTracked) {
+        Server server = state.servers.get(name);
+
+        if (server != null) {
+            server.setTracked(isTracked);
+            listeners.forEach(listener -> listener.setTracked(name, isTracked));
+        }
+    }
+
+    /**
+     * Updates the load reported by a server, metrics that are not reported are unchanged.
+     */
+    public void setLoad(String name, Integer users, Integer capacity, Double cpu) {
+        Server server = state.servers.get(name);
+
+        if (server != null) {
+            if (users != null)
+                server.setUsers(users);
+
+            if (capacity != null)
+                server.setCapacity(capacity);
+
+            if (cpu != null)
+                server.setCpu(cpu);
+
+            listeners.forEach(listener -> listener.setLoad(name, users, capacity, cpu));
+        }
+    }
+
+    public void removeServer(String name) {
+        Server server = state.servers.remove(name);
+
+        if (server != null) {
+            state.index.remove(server);
+            state.lastPolled.invalidate(name);
+            listeners.forEach(listener -> listener.removeServer(name));
+        }
+    }
+
+    public void addServer(Server server) {
+        removeServer(server.getName());
+        state.servers.put(server.getName(), server);
+        state.index.add(server);
+        listeners.forEach(listener -> listener.addServer(server));
+    }
+
+    /**
+     * Moves a server to another connector.
+     *
+     * @param name  the name of the server.
+     * @param owner name of the connector that now owns the server.
+     */
+    public void setOwner(String name, String owner) {
+        Server server = state.servers.get(name);
+
+        if (server != null) {
+            server.setOwner(owner);
+            listeners.forEach(listener -> listener.setOwner(name, owner));
+        }
+    }
+
+    /**
+     * Removes all servers registered by a connector.
+     *
+     * @param owner name of the connector.
+     */
+    public void removeOwnedBy(String owner) {
+        for (Server server : getOwnedBy(owner))
+            removeServer(server.getName());
+    }
+
+    public List<Server> getOwnedBy(String owner) {
+        List<Server> owned = new ArrayList<>();
+
+        for (Server server : state.servers.values())
+            if (owner.equals(server.getOwner()))
+                owned.add(server);
+
+        return owned;
+    }
+
+    public void clear() {
+        List<String> removed = new ArrayList<>(state.servers.keySet());
+
+        state.servers.clear();
+        state.index.clear();
+        state.lastPolled.clear();
+
+        for (String name : removed)
+            listeners.forEach(listener -> listener.removeServer(name));
+    }
+
+    /**
+     * Replaces the servers, rooms and room assignments with those of another
+     * registry in a single step, lookups see either the previous or the new
+     * servers but never a registry that is partially loaded.
+     *
+     * @param loaded a registry that is not shared, it must not be used afterwards.
+     */
+    public void replace(Registry loaded) {
+        State previous = state;
+        state = loaded.state;
+
+        for (String name : previous.servers.keySet())
+            if (!state.servers.containsKey(name))
+                listeners.forEach(listener -> listener.removeServer(name));
+
+        for (Server server : state.servers.values())
+            listeners.forEach(listener -> listener.addServer(server));
+    }
+
+    /**
+     * @param listener receives the mutations applied from now on.
+     */
+    public void addListener(RegistryListener listener) {
+        listeners.add(listener);
+    }
+
+    public Map<String, Server> getServers() {
+        return state.servers;
+    }
+
+    @Override
+    public AffinityCache getLastPolled() {
+        return state.lastPolled;
+    }
+
+    public ChangeTracker getChanges() {
+        return changes;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * The servers with the index and room assignments over them, replaced
+     * as a whole when a registry is loaded.
+     */
+    private static class State {
+        private final Map<String, Server> servers = new ConcurrentHashMap<>();
+        private final AffinityCache lastPolled =
+                new AffinityCache(Configuration.AFFINITY_CACHE_SIZE, Configuration.AFFINITY_CACHE_TTL);
+        private final ServerIndex index =
+                new ServerIndex(new HashRing(Configuration.RING_REPLICAS, Configuration.RING_BALANCE));
+    }
+}
@@ -1,18 +1,29 @@
 package com.websocket.chat.registry;
 
 import com.websocket.chat.registry.Exception.NoServersFound;
+import com.websocket.chat.registry.Model.Connector;
 import com.websocket.chat.registry.Model.Room;
 import com.websocket.chat.registry.Model.Server;
+import com.websocket.chat.registry.Model.TimerWheel;
 import com.websocket.chat.registry.Protocol.*;
+import com.websocket.chat.registry.Replication.Replicator;
+import com.websocket.chat.registry.Selection.Strategies;
+import com.websocket.chat.registry.Storage.Journal;
+import com.websocket.chat.registry.Storage.Snapshot;
 import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Verticle;
 import io.vertx.core.Vertx;
+import io.vertx.core.shareddata.LocalMap;
 
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by Robin on 2015-12-18.
@@ -20,14 +31,32 @@ import java.util.Random;
  * Warning: the chatservers must be provisioned with enough processing
  * capacity to handle the number of maximum assigned users at MAX load.
  * This is because already connected users are not relocated during heavy load.
+ * <p>
+ * The registry service is the single writer of the registry, lookups are
+ * served by the lookup service instances from the shared registry.
+ * <p>
+ * The service is deployed as a worker so that connector events are never
+ * queued behind lookups on a shared event loop. The delay of the writer is
+ * probed continuously, it bounds how stale the registry read by lookups is.
+ * <p>
+ * Servers that send heartbeats are tracked on a single timer wheel, a server
+ * is not selected when it misses its heartbeats and is removed when it stays
+ * silent until it expires.
  */
 public class RegistryService implements Verticle {
-    private Map<String, Server> servers = new HashMap<>();
     private Map<String, EventHandler> eventHandler = new HashMap<>();
-    private Map<String, MessageHandler> messageHandler = new HashMap<>();
-    private Map<String, String> lastPolled = new HashMap<>();
+    private Map<String, Class> eventFormat = new HashMap<>();
+    private Registry registry = new Registry();
+    private Map<String, Integer> connections = new HashMap<>();
+    private Map<String, Long> expiring = new HashMap<>();
+    private TimerWheel<Server> liveness = new TimerWheel<>(Configuration.HEARTBEAT_EXPIRE + 1);
+    private boolean snapshotRequested = true;
+    private long sequence = 0;
+    private Journal journal;
+    private long generation = 0;
+    private long snapshotRetry;
+    private long probed;
     private Vertx vertx;
-    private IOLogger logger = new IOLogger();
 
     @Override
     public Vertx getVertx() {
@@ -40,172 +69,378 @@ public class RegistryService implements Verticle {
 
         eventHandler.put(RoomEvent.ACTION, EventHandler.HandleRoom);
         eventHandler.put(ServerEvent.ACTION, EventHandler.HandleServer);
+        eventHandler.put(EventBatch.ACTION, EventHandler.HandleBatch);
+        eventHandler.put(ConnectorEvent.ACTION, EventHandler.HandleConnector);
+        eventHandler.put(HeartbeatEvent.ACTION, EventHandler.HandleHeartbeat);
 
-        messageHandler.put(Lookup.ACTION, MessageHandler.HandleLookup);
+        eventHandler.forEach((action, handler) -> eventFormat.put(action, handler.getFormat()));
     }
 
     @Override
     public void start(Future<Void> startFuture) throws Exception {
+        startStorage();
+        startStrategySwitch(vertx, registry);
+
+        if (vertx.isClustered())
+            registry.addListener(new Replicator(vertx, registry));
+
+        getSharedMap(vertx).put(Configuration.REGISTRY_SHARED, registry);
         startRegistryEventListener();
-        startRegistryLookupService();
         startHitCountLog();
+        startLagProbe();
+        startLiveness();
+        startFuture.complete();
+    }
+
+    /**
+     * @param vertx the vertx instance the registry service is deployed on.
+     * @return the registry that is written by the registry service.
+     */
+    public static Registry getShared(Vertx vertx) {
+        return getSharedMap(vertx).get(Configuration.REGISTRY_SHARED);
+    }
+
+    static LocalMap<String, Registry> getSharedMap(Vertx vertx) {
+        return vertx.sharedData().getLocalMap(Configuration.REGISTRY_SHARED);
+    }
+
+    /**
+     * Restores the registry from the latest snapshot and the journal that
+     * follows it, then compacts the journal into a new snapshot. The registry
+     * is snapshot periodically and when the journal is full.
+     * <p>
+     * The connectors of the restored servers are given a grace period to
+     * reconnect before their servers are removed.
+     */
+    private void startStorage() {
+        File directory = new File(Configuration.STORAGE_PATH);
+        long started = System.currentTimeMillis();
+        int replayed = 0;
+
+        try {
+            directory.mkdirs();
+            journal = new Journal(new File(directory, Configuration.STORAGE_JOURNAL),
+                    Configuration.JOURNAL_SIZE, this::snapshot);
+        } catch (IOException e) {
+            System.out.println("Registry persistence disabled: " + e.getMessage());
+            return;
+        }
+
+        try {
+            generation = Snapshot.load(getSnapshotFile(), registry);
+
+            if (journal.getGeneration() == generation)
+                replayed = journal.replay(registry);
+        } catch (IOException e) {
+            System.out.println("Failed to restore the registry: " + e.getMessage());
+            registry.clear();
+            generation = Math.max(generation, journal.getGeneration());
+        }
+
+        snapshot();
+        registry.addListener(journal);
+
+        Set<String> owners = new HashSet<>();
+
+        for (Server server : registry.getServers().values())
+            if (server.getOwner() != null)
+                owners.add(server.getOwner());
+
+        owners.forEach(owner -> expire(owner, Configuration.RESTORE_GRACE));
+
+        vertx.setPeriodic(Configuration.SNAPSHOT_INTERVAL, event -> snapshot());
+        System.out.println("Restored " + registry.getServers().size() + " servers, replayed " + replayed +
+                " events in " + (System.currentTimeMillis() - started) + " ms");
+    }
+
+    private File getSnapshotFile() {
+        return new File(Configuration.STORAGE_PATH, Configuration.STORAGE_SNAPSHOT);
+    }
+
+    /**
+     * Writes the registry to a new snapshot and resets the journal. After a
+     * failure no snapshot is attempted until the retry delay has passed, the
+     * records that overflow the journal meanwhile are included in the next
+     * snapshot that is written.
+     */
+    private void snapshot() {
+        long now = System.currentTimeMillis();
+
+        if (now < snapshotRetry)
+            return;
+
+        try {
+            Snapshot.save(getSnapshotFile(), generation + 1, registry);
+            generation += 1;
+            journal.reset(generation);
+            snapshotRetry = 0;
+        } catch (IOException e) {
+            snapshotRetry = now + Configuration.SNAPSHOT_RETRY;
+            System.out.println("Failed to snapshot the registry, retrying in " +
+                    Configuration.SNAPSHOT_RETRY + " ms: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Selects the configured strategy and switches strategy when the name of
+     * another strategy is published, so that all nodes of a cluster switch.
+     *
+     * @param vertx    the vertx instance to listen on.
+     * @param registry the registry to set the strategy on.
+     */
+    static void startStrategySwitch(Vertx vertx, Registry registry) {
+        registry.setStrategy(Strategies.create(Configuration.SELECTION_STRATEGY));
+
+        vertx.eventBus().consumer(Configuration.BUS_STRATEGY, message -> {
+            try {
+                registry.setStrategy(Strategies.create(message.body().toString()));
+                System.out.println("Selection strategy set to " + message.body());
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+            }
+        });
     }
 
     private void startRegistryEventListener() {
         vertx.createHttpServer().websocketHandler(event -> {
-            event.handler(data -> {
-                Packet packet = (Packet) Serializer.unpack(data.toString(), Packet.class);
+            Connector connector = new Connector(event.textHandlerID());
+            connected(connector);
 
-                if (eventHandler.get(packet.getAction()) != null) {
-                    eventHandler.get(packet.getAction()).handle(data.toString(), this);
-                    logger.in();
+            event.handler(data -> {
+                long start = System.nanoTime();
+                Packet packet = unpackEvent(data.getBytes());
+                registry.getMetrics().parsed(System.nanoTime() - start);
+
+                if (packet.getMessage() != null) {
+                    eventHandler.get(packet.getAction()).handle(packet.getMessage(), connector, this);
+                    registry.getMetrics().applied(System.nanoTime() - start);
+                    registry.getMetrics().in(packet.getAction());
                 }
             });
 
             event.closeHandler(close -> {
-                servers.clear();
+                disconnected(connector);
             });
 
         }).listen(Configuration.CONNECTOR_PORT);
         System.out.println("Registry running on port " + Configuration.CONNECTOR_PORT);
     }
 
-    private void startRegistryLookupService() {
-        vertx.createHttpServer().websocketHandler(event -> {
-            event.handler(data -> {
-                Packet packet = (Packet) Serializer.unpack(data.toString(), Packet.class);
+    /**
+     * Keeps the servers of a connector that reconnects within the grace period.
+     *
+     * @param connector the connector that opened a connection.
+     */
+    protected void connected(Connector connector) {
+        Long timer = expiring.remove(connector.getName());
 
-                if (messageHandler.get(packet.getAction()) != null) {
-                    messageHandler.get(packet.getAction()).handle(
-                            event.textHandlerID(), data.toString(), this);
-                    logger.out();
-                }
-            });
+        if (timer != null)
+            vertx.cancelTimer(timer);
 
-        }).listen(Configuration.CLIENT_PORT);
-        System.out.println("Lookup service running on port " + Configuration.CLIENT_PORT);
+        connections.merge(connector.getName(), 1, Integer::sum);
+    }
+
+    /**
+     * Removes the servers of a connector when it has no open connections and
+     * has not reconnected within the grace period.
+     *
+     * @param connector the connector that closed a connection.
+     */
+    protected void disconnected(Connector connector) {
+        String name = connector.getName();
+
+        if (connections.merge(name, -1, Integer::sum) <= 0) {
+            connections.remove(name);
+            expire(name, Configuration.CONNECTOR_GRACE);
+        }
+    }
+
+    private void expire(String name, long grace) {
+        expiring.put(name, vertx.setTimer(grace, expired -> {
+            expiring.remove(name);
+            registry.removeOwnedBy(name);
+        }));
+    }
+
+    /**
+     * Renames a connector, the servers it has registered so far are moved to the new name.
+     *
+     * @param connector the connector to rename.
+     * @param name      the name announced by the connector.
+     */
+    protected void rename(Connector connector, String name) {
+        if (connections.merge(connector.getName(), -1, Integer::sum) <= 0)
+            connections.remove(connector.getName());
+
+        for (Server server : registry.getOwnedBy(connector.getName()))
+            registry.setOwner(server.getName(), name);
+
+        connector.setName(name);
+        connected(connector);
+    }
+
+    protected List<Server> getOwnedBy(String connector) {
+        return registry.getOwnedBy(connector);
     }
 
     private void startHitCountLog() {
+        vertx.eventBus().consumer(Configuration.BUS_SNAPSHOT, request -> {
+            snapshotRequested = true;
+        });
+
         vertx.setPeriodic(Configuration.LOG_INTERVAL, event -> {
-            sendBus(Configuration.BUS_LOGGING, logger);
-            sendBus(Configuration.BUS_LOGGING, new ServerTreeLog(servers));
-            logger.reset();
+            Room.tick();
+            sendBus(Configuration.BUS_LOGGING, registry.getMetrics().drain());
+            logServerTree();
+            sendBus(Configuration.BUS_LOGGING, new AffinityLog(registry.getLastPolled()));
+            registry.getLastPolled().resetStats();
         });
     }
 
-    protected void sendBus(String address, Object data) {
-        vertx.eventBus().send(address, Serializer.pack(data));
+    /**
+     * Measures how late a periodic task runs on the writer, which is the time
+     * a connector event may wait behind other tasks before it is handled.
+     */
+    private void startLagProbe() {
+        long interval = TimeUnit.MILLISECONDS.toNanos(Configuration.LAG_PROBE_INTERVAL);
+        probed = System.nanoTime();
+
+        vertx.setPeriodic(Configuration.LAG_PROBE_INTERVAL, probe -> {
+            long now = System.nanoTime();
+            registry.getMetrics().lagged(Math.max(0, now - probed - interval));
+            probed = now;
+        });
     }
 
     /**
-     * Get a list of servers that is advertised as ready for more clients.
-     *
-     * @return List of all servers ready for clients.
+     * Advances the liveness wheel once per heartbeat interval, restored
+     * servers that had already missed their heartbeats are expired unless
+     * they send a heartbeat again. Restored servers that were sending
+     * heartbeats are tracked as if a heartbeat was just received.
      */
-    protected ArrayList<Server> getReadyServers() {
-        ArrayList<Server> list = new ArrayList<>();
-
-        for (Server server : servers.values()) {
-            if (!server.getFull())
-                list.add(server);
+    private void startLiveness() {
+        for (Server server : registry.getServers().values()) {
+            if (!server.isAlive())
+                liveness.schedule(server, Configuration.HEARTBEAT_EXPIRE - Configuration.HEARTBEAT_MISSED);
+            else if (server.isTracked())
+                liveness.schedule(server, Configuration.HEARTBEAT_MISSED + 1);
         }
-        return list;
-    }
 
+        vertx.setPeriodic(Configuration.HEARTBEAT_INTERVAL, tick -> liveness.advance(this::missed));
+    }
 
     /**
-     * Returns a single server that is ready for more clients.
+     * Tracks a server from its first heartbeat, the timeout is one tick longer
+     * than the number of heartbeats it may miss as the current tick has
+     * already partially elapsed.
      *
-     * @param roomName servers subscribed to roomName a preferred
-     *                 as it is beneficial to group users to minimize
-     *                 replication. Rooms that have more hits/connects are also
-     *                 preferred.
-     * @return A single server that has the highest match priority, if all servers
-     * have equal priority the server will be randomized.
-     * @throws NoServersFound if no servers are subscribed on the connector
-     *                        or if all subscribed connectors are full.
+     * @param name the name of the server that sent the heartbeat.
      */
-    protected Server getReadyServer(String roomName) throws NoServersFound {
-        ArrayList<Server> ready = new ArrayList<>(getReadyServers());
+    protected void heartbeat(String name) {
+        Server server = registry.getServer(name);
 
-        Server preferred = getPrioritized(ready, roomName);
-        Integer hits = -1;
+        if (server != null) {
+            liveness.schedule(server, Configuration.HEARTBEAT_MISSED + 1);
 
-        for (Server server : ready) {
-            Room room = server.getRooms().get(roomName);
+            if (!server.isTracked())
+                registry.setTracked(name, true);
 
-            if (room != null && room.getHits() > hits) {
-                preferred = server;
-                hits = room.getHits();
-            }
+            if (!server.isAlive())
+                registry.setAlive(name, true);
         }
-
-        if (preferred.getRooms().containsKey(roomName))
-            preferred.getRooms().get(roomName).hit();
-        else
-            lastPolled.put(roomName, preferred.getName());
-        return preferred;
     }
 
     /**
-     * Prioritizes servers that has been selected randomly for allocation and
-     * that is ready. If no such servers are found then a ready server is selected
-     * at random and chosen to be the next lastly polled.
+     * Called when a server has missed its heartbeats, the server is first
+     * marked as not alive and then removed if it stays silent.
      *
-     * @param ready list of servers ready to host a new instance.
-     * @param roomName the instance name.
-     * @return a server that is ready and preferred.
-     * @throws NoServersFound when no ready servers are available.
+     * @param server the server that timed out.
      */
-    private Server getPrioritized(ArrayList<Server> ready, String roomName) throws NoServersFound {
-        String serverName = lastPolled.get(roomName);
-        Server polled = servers.get(serverName);
+    private void missed(Server server) {
+        if (registry.getServer(server.getName()) == server) {
+            if (server.isAlive()) {
+                registry.setAlive(server.getName(), false);
+                liveness.schedule(server, Configuration.HEARTBEAT_EXPIRE - Configuration.HEARTBEAT_MISSED);
+            } else {
+                registry.removeServer(server.getName());
+            }
+        }
+    }
 
-        if (ready.size() == 0)
-            throw new NoServersFound();
+    /**
+     * Logs the full server tree periodically or when requested, in between
+     * only the changes since the last log are sent.
+     */
+    private void logServerTree() {
+        sequence += 1;
 
-        if (polled != null && !polled.getFull()) {
-                return polled;
+        if (snapshotRequested || sequence % Configuration.LOG_SNAPSHOT_INTERVAL == 0) {
+            registry.getChanges().clear();
+            sendBus(Configuration.BUS_LOGGING, new ServerTreeLog(registry.getServers()).setSequence(sequence));
+            snapshotRequested = false;
         } else {
-            Server server = ready.get(new Random().nextInt(ready.size()));
-            lastPolled.put(roomName, server.getName());
-            return server;
+            ServerTreeDelta delta = registry.getChanges().drain();
+
+            if (!delta.isEmpty())
+                sendBus(Configuration.BUS_LOGGING, delta.setSequence(sequence));
         }
     }
 
+    protected void sendBus(String address, Object data) {
+        String packed = Serializer.pack(data);
+        long start = System.nanoTime();
+        vertx.eventBus().send(address, packed);
+        registry.getMetrics().sent(System.nanoTime() - start);
+    }
 
-    protected void removeRoom(String name, String room) {
-        Server server = servers.get(name);
+    protected Packet unpackEvent(byte[] event) {
+        return Serializer.unpack(event, eventFormat);
+    }
 
-        if (server != null)
-            server.getRooms().remove(room);
+    protected EventHandler getEventHandler(String action) {
+        return eventHandler.get(action);
     }
 
-    protected void addRoom(String name, Room room) {
-        Server server = servers.get(name);
+    protected Server getReadyServer(String roomName) throws NoServersFound {
+        return registry.getReadyServer(roomName);
+    }
 
-        if (server != null)
-            server.getRooms().put(room.getName(), room);
+    protected void removeRoom(String name, String room) {
+        registry.removeRoom(name, room);
     }
 
+    protected void addRoom(String name, Room room) {
+        registry.addRoom(name, room);
+    }
 
     protected void setFull(String name, boolean isFull) {
-        Server server = servers.get(name);
+        registry.setFull(name, isFull);
+    }
 
-        if (server != null)
-            server.setFull(isFull);
+    protected void setLoad(String name, Integer users, Integer capacity, Double cpu) {
+        registry.setLoad(name, users, capacity, cpu);
     }
 
-    protected void removeServer(String server) {
-        servers.remove(server);
+    protected void removeServer(String name) {
+        Server server = registry.getServer(name);
+
+        if (server != null)
+            liveness.cancel(server);
+
+        registry.removeServer(name);
     }
 
     protected void addServer(Server server) {
-        servers.put(server.getName(), server);
+        registry.addServer(server);
     }
 
     @Override
     public void stop(Future<Void> stopFuture) throws Exception {
+        getSharedMap(vertx).remove(Configuration.REGISTRY_SHARED);
+
+        if (journal != null)
+            journal.close();
+
+        stopFuture.complete();
     }
 }
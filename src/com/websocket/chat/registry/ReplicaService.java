@@ -0,0 +1,59 @@
+package com.websocket.chat.registry;
+
+import com.websocket.chat.registry.Model.Room;
+import com.websocket.chat.registry.Protocol.Serializer;
+import com.websocket.chat.registry.Replication.Replica;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Verticle;
+import io.vertx.core.Vertx;
+
+/**
+ * Created by Robin on 2016-01-06.
+ * <p>
+ * Read replica of the registry for clustered deployments, the registry is
+ * kept up to date from the registry service over the clustered event bus and
+ * shared with the lookup service instances on the same node.
+ * <p>
+ * Deployed by the launcher instead of the registry service when clustered
+ * with -Dregistry.replica=true.
+ */
+public class ReplicaService implements Verticle {
+    private Registry registry = new Registry();
+    private Replica replica;
+    private Vertx vertx;
+
+    @Override
+    public Vertx getVertx() {
+        return vertx;
+    }
+
+    @Override
+    public void init(Vertx vertx, Context context) {
+        this.vertx = vertx;
+    }
+
+    @Override
+    public void start(Future<Void> startFuture) throws Exception {
+        RegistryService.getSharedMap(vertx).put(Configuration.REGISTRY_SHARED, registry);
+        RegistryService.startStrategySwitch(vertx, registry);
+        replica = new Replica(vertx, registry);
+        replica.start();
+
+        vertx.setPeriodic(Configuration.LOG_INTERVAL, event -> {
+            Room.tick();
+            vertx.eventBus().send(Configuration.BUS_LOGGING, Serializer.pack(registry.getMetrics().drain()));
+            registry.getChanges().clear();
+        });
+
+        System.out.println("Registry replica started");
+        startFuture.complete();
+    }
+
+    @Override
+    public void stop(Future<Void> stopFuture) throws Exception {
+        replica.stop();
+        RegistryService.getSharedMap(vertx).remove(Configuration.REGISTRY_SHARED);
+        stopFuture.complete();
+    }
+}
@@ -0,0 +1,117 @@
+package com.websocket.chat.registry.Replication;
+
+import com.websocket.chat.registry.Configuration;
+import com.websocket.chat.registry.Registry;
+import com.websocket.chat.registry.Storage.MutationLog;
+import com.websocket.chat.registry.Storage.Snapshot;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.MessageConsumer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Created by Robin on 2016-01-06.
+ * <p>
+ * Keeps a local registry up to date with the mutations published by the
+ * replicator. Starts from a snapshot, mutations that arrive while waiting
+ * for the snapshot are held back and applied if not included in it.
+ * <p>
+ * A new snapshot is requested when a mutation is missed or the replicator
+ * restarts. The snapshot is loaded into a new registry that replaces the
+ * local registry when complete, lookups are served from the previous
+ * servers until then.
+ */
+public class Replica {
+    private static final int HEADER = 2 * Long.BYTES;
+    private final Vertx vertx;
+    private final Registry registry;
+    private MessageConsumer<Buffer> consumer;
+    private List<Buffer> pending;
+    private long epoch;
+    private long sequence;
+    private long synced = 0;
+
+    /**
+     * @param vertx    the clustered vertx instance.
+     * @param registry the local registry, only written by the replica.
+     */
+    public Replica(Vertx vertx, Registry registry) {
+        this.vertx = vertx;
+        this.registry = registry;
+    }
+
+    public void start() {
+        consumer = vertx.eventBus().consumer(Configuration.BUS_REPLICATION, message -> receive(message.body()));
+        sync();
+    }
+
+    public void stop() {
+        consumer.unregister();
+    }
+
+    private void sync() {
+        if (pending == null) {
+            pending = new ArrayList<>();
+
+            vertx.eventBus().<Buffer>send(Configuration.BUS_REPLICATION_SNAPSHOT, "",
+                    new DeliveryOptions().setSendTimeout(Configuration.REPLICA_RETRY), reply -> {
+                        if (reply.succeeded()) {
+                            load(reply.result().body());
+                        } else {
+                            pending = null;
+                            vertx.setTimer(Configuration.REPLICA_RETRY, retry -> sync());
+                        }
+                    });
+        }
+    }
+
+    private void load(Buffer snapshot) {
+        List<Buffer> held = pending;
+        Registry loaded = new Registry();
+
+        try {
+            Snapshot.load(snapshot.getBytes(HEADER, snapshot.length()), loaded);
+            registry.replace(loaded);
+            epoch = snapshot.getLong(0);
+            sequence = snapshot.getLong(Long.BYTES);
+            synced += 1;
+            pending = null;
+            held.forEach(this::receive);
+        } catch (IOException e) {
+            System.out.println("Failed to load the registry snapshot: " + e.getMessage());
+            pending = null;
+            sync();
+        }
+    }
+
+    private void receive(Buffer mutation) {
+        if (pending != null) {
+            pending.add(mutation);
+        } else if (mutation.getLong(0) != epoch || mutation.getLong(Long.BYTES) > sequence + 1) {
+            sync();
+            pending.add(mutation);
+        } else if (mutation.getLong(Long.BYTES) == sequence + 1) {
+            MutationLog.apply(ByteBuffer.wrap(mutation.getBytes(HEADER, mutation.length())), registry);
+            sequence += 1;
+        }
+    }
+
+    /**
+     * @return the sequence number of the last applied mutation.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return the number of snapshots loaded.
+     */
+    public long getSynced() {
+        return synced;
+    }
+}
@@ -0,0 +1,59 @@
+package com.websocket.chat.registry.Replication;
+
+import com.websocket.chat.registry.Configuration;
+import com.websocket.chat.registry.Registry;
+import com.websocket.chat.registry.Storage.MutationLog;
+import com.websocket.chat.registry.Storage.Snapshot;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Created by Robin on 2016-01-06.
+ * <p>
+ * Publishes the mutations applied to the registry to the replicas, each
+ * mutation is prefixed with the epoch of the replicator and its sequence number.
+ * Replicas request a snapshot with the sequence number it includes to catch up.
+ * <p>
+ * The epoch changes when the registry service is restarted, so that
+ * replicas know that the sequence numbers start over.
+ */
+public class Replicator extends MutationLog {
+    private final long epoch = ThreadLocalRandom.current().nextLong();
+    private final Vertx vertx;
+    private long sequence = 0;
+
+    /**
+     * Must be created on the context of the writer of the registry, so that
+     * snapshots are taken in between mutations.
+     *
+     * @param vertx    the clustered vertx instance.
+     * @param registry the registry to replicate.
+     */
+    public Replicator(Vertx vertx, Registry registry) {
+        this.vertx = vertx;
+
+        vertx.eventBus().consumer(Configuration.BUS_REPLICATION_SNAPSHOT, request -> {
+            request.reply(header(epoch, sequence).appendBytes(Snapshot.toBytes(sequence, registry)));
+        });
+    }
+
+    @Override
+    protected void commit(ByteBuffer record) {
+        byte[] bytes = new byte[record.remaining()];
+        record.get(bytes);
+        sequence += 1;
+
+        vertx.eventBus().publish(Configuration.BUS_REPLICATION, header(epoch, sequence).appendBytes(bytes));
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    static Buffer header(long epoch, long sequence) {
+        return Buffer.buffer().appendLong(epoch).appendLong(sequence);
+    }
+}
@@ -0,0 +1,44 @@
+package com.websocket.chat.registry.Selection;
+
+import com.websocket.chat.registry.Exception.NoServersFound;
+import com.websocket.chat.registry.Model.Server;
+
+/**
+ * Created by Robin on 2016-01-07.
+ * <p>
+ * Groups the users of a room on as few servers as possible. The server
+ * hosting the room with the most hits is preferred, rooms that are not
+ * hosted are sent to the server they were last assigned to, or else to the
+ * least loaded of two random servers.
+ */
+public class AffinityStrategy implements SelectionStrategy {
+    public static final String NAME = "affinity";
+
+    @Override
+    public Server select(String room, RegistryView view) throws NoServersFound {
+        Server preferred = view.getMostHits(room);
+
+        if (preferred != null)
+            return preferred;
+
+        String serverName = view.getLastPolled().get(room);
+        Server polled = (serverName == null) ? null : view.getServer(serverName);
+
+        if (polled != null && !polled.getFull() && polled.isAlive()) {
+            return polled;
+        } else {
+            Server server = view.getLeastLoaded();
+
+            if (server == null)
+                throw new NoServersFound();
+
+            view.getLastPolled().put(room, server.getName());
+            return server;
+        }
+    }
+
+    @Override
+    public boolean isCoalescable() {
+        return true;
+    }
+}
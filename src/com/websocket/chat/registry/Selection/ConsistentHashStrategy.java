@@ -0,0 +1,34 @@
+package com.websocket.chat.registry.Selection;
+
+import com.websocket.chat.registry.Exception.NoServersFound;
+import com.websocket.chat.registry.Model.Server;
+
+/**
+ * Created by Robin on 2016-01-07.
+ * <p>
+ * Sends clients to the server hosting the room with the most hits, rooms
+ * that are not hosted are placed on the hash ring. Placement depends only on
+ * the registered servers and rooms, so that every registry selects the same
+ * server for a room and placement survives restarts.
+ */
+public class ConsistentHashStrategy implements SelectionStrategy {
+    public static final String NAME = "consistent-hash";
+
+    @Override
+    public Server select(String room, RegistryView view) throws NoServersFound {
+        Server server = view.getMostHits(room);
+
+        if (server == null)
+            server = view.getPlaced(room);
+
+        if (server == null)
+            throw new NoServersFound();
+
+        return server;
+    }
+
+    @Override
+    public boolean isCoalescable() {
+        return true;
+    }
+}
@@ -0,0 +1,45 @@
+package com.websocket.chat.registry.Selection;
+
+import com.websocket.chat.registry.Exception.NoServersFound;
+import com.websocket.chat.registry.Model.Server;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Created by Robin on 2016-01-07.
+ * <p>
+ * Sends every client to the ready server with the lowest reported load,
+ * regardless of the room. All ready servers are visited, starting at a
+ * random server so that servers with equal load share the clients.
+ */
+public class LeastLoadedStrategy implements SelectionStrategy {
+    public static final String NAME = "least-loaded";
+
+    @Override
+    public Server select(String room, RegistryView view) throws NoServersFound {
+        Server[] ready = view.getReady();
+
+        if (ready.length == 0)
+            throw new NoServersFound();
+
+        int start = ThreadLocalRandom.current().nextInt(ready.length);
+        Server selected = ready[start];
+        double lowest = selected.getLoad();
+
+        for (int i = 1; i < ready.length; i++) {
+            Server server = ready[(start + i) % ready.length];
+            double load = server.getLoad();
+
+            if (load < lowest) {
+                selected = server;
+                lowest = load;
+            }
+        }
+        return selected;
+    }
+
+    @Override
+    public boolean isCoalescable() {
+        return false;
+    }
+}
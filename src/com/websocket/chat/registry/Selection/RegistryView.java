@@ -0,0 +1,48 @@
+package com.websocket.chat.registry.Selection;
+
+import com.websocket.chat.registry.Model.AffinityCache;
+import com.websocket.chat.registry.Model.Server;
+
+/**
+ * Created by Robin on 2016-01-07.
+ * <p>
+ * Read-only view of the registry for selection strategies, may be called
+ * from any event loop while the registry is updated.
+ */
+public interface RegistryView {
+
+    /**
+     * @param name the name of the server.
+     * @return the server or null if not registered.
+     */
+    Server getServer(String name);
+
+    /**
+     * @return the servers that are ready for more clients, the array must not be modified.
+     */
+    Server[] getReady();
+
+    /**
+     * @param room the name of the room.
+     * @return the ready server with the most hits for the room, null if
+     * the room is not hosted by a ready server.
+     */
+    Server getMostHits(String room);
+
+    /**
+     * @param room the name of the room.
+     * @return the ready server the room is placed on by consistent hashing,
+     * the same on every registry with the same servers. Null if there are no ready servers.
+     */
+    Server getPlaced(String room);
+
+    /**
+     * @return the least loaded of two random ready servers, null if there are no ready servers.
+     */
+    Server getLeastLoaded();
+
+    /**
+     * @return the rooms that were last assigned to a server, strategies may update it.
+     */
+    AffinityCache getLastPolled();
+}
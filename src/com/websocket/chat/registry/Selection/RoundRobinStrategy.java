@@ -0,0 +1,31 @@
+package com.websocket.chat.registry.Selection;
+
+import com.websocket.chat.registry.Exception.NoServersFound;
+import com.websocket.chat.registry.Model.Server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created by Robin on 2016-01-07.
+ * <p>
+ * Sends the clients to the ready servers in turn, regardless of the room.
+ */
+public class RoundRobinStrategy implements SelectionStrategy {
+    public static final String NAME = "round-robin";
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Override
+    public Server select(String room, RegistryView view) throws NoServersFound {
+        Server[] ready = view.getReady();
+
+        if (ready.length == 0)
+            throw new NoServersFound();
+
+        return ready[Math.floorMod(next.getAndIncrement(), ready.length)];
+    }
+
+    @Override
+    public boolean isCoalescable() {
+        return false;
+    }
+}
@@ -0,0 +1,27 @@
+package com.websocket.chat.registry.Selection;
+
+import com.websocket.chat.registry.Exception.NoServersFound;
+import com.websocket.chat.registry.Model.Server;
+
+/**
+ * Created by Robin on 2016-01-07.
+ * <p>
+ * Selects the server that a client joining a room is sent to. Strategies
+ * are called concurrently from the lookup service instances.
+ */
+public interface SelectionStrategy {
+
+    /**
+     * @param room the name of the room the client is joining.
+     * @param view the registry to select a server from.
+     * @return a server that is ready for more clients.
+     * @throws NoServersFound when no servers are ready.
+     */
+    Server select(String room, RegistryView view) throws NoServersFound;
+
+    /**
+     * @return true if the strategy selects the same server for a room until
+     * the registry changes, lookups for a room may then be coalesced.
+     */
+    boolean isCoalescable();
+}
@@ -0,0 +1,37 @@
+package com.websocket.chat.registry.Selection;
+
+/**
+ * Created by Robin on 2016-01-07.
+ * <p>
+ * Creates the selection strategies by name.
+ */
+public abstract class Strategies {
+
+    /**
+     * @param name the name of the strategy.
+     * @return a new instance of the strategy.
+     * @throws IllegalArgumentException when there is no strategy with the name.
+     */
+    public static SelectionStrategy create(String name) {
+        switch (name) {
+            case AffinityStrategy.NAME:
+                return new AffinityStrategy();
+            case ConsistentHashStrategy.NAME:
+                return new ConsistentHashStrategy();
+            case LeastLoadedStrategy.NAME:
+                return new LeastLoadedStrategy();
+            case RoundRobinStrategy.NAME:
+                return new RoundRobinStrategy();
+            default:
+                throw new IllegalArgumentException("Unknown selection strategy: " + name);
+        }
+    }
+
+    /**
+     * @return the names of the strategies.
+     */
+    public static String[] getNames() {
+        return new String[]{AffinityStrategy.NAME, ConsistentHashStrategy.NAME,
+                LeastLoadedStrategy.NAME, RoundRobinStrategy.NAME};
+    }
+}
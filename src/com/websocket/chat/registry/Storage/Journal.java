@@ -0,0 +1,150 @@
+package com.websocket.chat.registry.Storage;
+
+import com.websocket.chat.registry.Registry;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Created by Robin on 2016-01-05.
+ * <p>
+ * Append-only journal of the mutations applied to the registry since the last
+ * snapshot, written to a memory mapped file so that an append is a memory copy.
+ * <p>
+ * The file starts with the generation of the snapshot the journal follows,
+ * each record is its length followed by the encoded mutation. The length
+ * is written last so that a record that was cut short is never replayed.
+ */
+public class Journal extends MutationLog implements Closeable {
+    private static final int HEADER = Long.BYTES;
+    private static final byte[] ZERO = new byte[65536];
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final Runnable overflow;
+    private int dirty;
+    private long generation;
+
+    /**
+     * @param file     the journal file, created if missing.
+     * @param size     the size of the mapping in bytes.
+     * @param overflow called when a record does not fit the journal, expected
+     *                 to take a snapshot and reset the journal.
+     * @throws IOException when the file cannot be mapped.
+     */
+    public Journal(File file, int size, Runnable overflow) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), CREATE, READ, WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        this.overflow = overflow;
+        this.generation = buffer.getLong(0);
+
+        int position = HEADER;
+        int length;
+
+        while ((length = length(position)) > 0)
+            position += Integer.BYTES + length;
+
+        buffer.position(position);
+        dirty = buffer.limit();
+    }
+
+    /**
+     * @return the generation of the snapshot the journal follows.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Applies the records in the journal to a registry.
+     *
+     * @param registry the registry that was loaded from the snapshot the journal follows.
+     * @return the number of records applied.
+     */
+    public int replay(Registry registry) {
+        ByteBuffer view = buffer.duplicate();
+        int position = HEADER;
+        int length;
+        int count = 0;
+
+        while ((length = length(position)) > 0) {
+            view.position(position + Integer.BYTES);
+            MutationLog.apply(view, registry);
+            position += Integer.BYTES + length;
+            count += 1;
+        }
+        return count;
+    }
+
+    /**
+     * Discards all records, called when a snapshot has been written. After
+     * opening the journal the space after the last record is cleared too, a
+     * record that was cut short may extend to the end of the journal.
+     *
+     * @param generation the generation of the snapshot that was written.
+     */
+    public void reset(long generation) {
+        int end = Math.max(dirty, buffer.position());
+
+        buffer.position(HEADER);
+
+        while (buffer.position() < end)
+            buffer.put(ZERO, 0, Math.min(ZERO.length, end - buffer.position()));
+
+        buffer.putLong(0, generation);
+        buffer.position(HEADER);
+        this.generation = generation;
+        this.dirty = 0;
+    }
+
+    /**
+     * Writes the mapped pages to disk, records are kept by the operating
+     * system if the process dies but not if the machine does.
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    public int size() {
+        return buffer.position() - HEADER;
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private int length(int position) {
+        if (buffer.limit() - position < Integer.BYTES)
+            return 0;
+
+        int length = buffer.getInt(position);
+        return (length > buffer.limit() - position - Integer.BYTES) ? 0 : length;
+    }
+
+    /**
+     * Appends the record, the mutation is already applied to the registry so
+     * when the journal is full the next snapshot that is written includes it.
+     */
+    @Override
+    protected void commit(ByteBuffer record) {
+        if (buffer.remaining() < Integer.BYTES + record.remaining()) {
+            overflow.run();
+        } else {
+            int position = buffer.position();
+            int length = record.remaining();
+
+            buffer.position(position + Integer.BYTES);
+            buffer.put(record);
+            buffer.putInt(position, length);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.websocket.chat.registry.Storage;
+
+import com.websocket.chat.registry.Model.RegistryListener;
+import com.websocket.chat.registry.Model.Room;
+import com.websocket.chat.registry.Model.Server;
+import com.websocket.chat.registry.Registry;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Created by Robin on 2016-01-06.
+ * <p>
+ * Encodes the mutations applied to the registry as compact binary records,
+ * a record is the type followed by the fields. Records are passed on in the
+ * order they are applied and can be applied to another registry.
+ * <p>
+ * The record buffer grows to fit the encoded fields, so that names of any
+ * length are recorded and the listeners after this one are always called.
+ */
+public abstract class MutationLog implements RegistryListener {
+    private static final byte ADD_SERVER = 1;
+    private static final byte REMOVE_SERVER = 2;
+    private static final byte ADD_ROOM = 3;
+    private static final byte REMOVE_ROOM = 4;
+    private static final byte SET_FULL = 5;
+    private static final byte SET_OWNER = 6;
+    private static final byte SET_LOAD = 7;
+    private static final byte SET_ALIVE = 8;
+    private static final byte SET_TRACKED = 9;
+    private static final int RECORD_SIZE = 4096;
+    private ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+
+    @Override
+    public void addServer(Server server) {
+        begin(ADD_SERVER);
+        putString(server.getName());
+        putString(server.getIp());
+        putInt((server.getPort() == null) ? -1 : server.getPort());
+        putBoolean(server.getFull());
+        putString(server.getOwner());
+        commit();
+
+        for (String room : server.getRooms().keySet())
+            addRoom(server.getName(), room);
+
+        if (!server.isAlive())
+            setAlive(server.getName(), false);
+
+        if (server.isTracked())
+            setTracked(server.getName(), true);
+    }
+
+    @Override
+    public void removeServer(String name) {
+        begin(REMOVE_SERVER);
+        putString(name);
+        commit();
+    }
+
+    @Override
+    public void addRoom(String server, String room) {
+        begin(ADD_ROOM);
+        putString(server);
+        putString(room);
+        commit();
+    }
+
+    @Override
+    public void removeRoom(String server, String room) {
+        begin(REMOVE_ROOM);
+        putString(server);
+        putString(room);
+        commit();
+    }
+
+    @Override
+    public void setFull(String server, boolean isFull) {
+        begin(SET_FULL);
+        putString(server);
+        putBoolean(isFull);
+        commit();
+    }
+
+    @Override
+    public void setAlive(String server, boolean isAlive) {
+        begin(SET_ALIVE);
+        putString(server);
+        putBoolean(isAlive);
+        commit();
+    }
+
+    @Override
+    public void setTracked(String server, boolean isTracked) {
+        begin(SET_TRACKED);
+        putString(server);
+        putBoolean(isTracked);
+        commit();
+    }
+
+    @Override
+    public void setOwner(String server, String owner) {
+        begin(SET_OWNER);
+        putString(server);
+        putString(owner);
+        commit();
+    }
+
+    @Override
+    public void setLoad(String server, Integer users, Integer capacity, Double cpu) {
+        begin(SET_LOAD);
+        putString(server);
+        putInt((users == null) ? -1 : users);
+        putInt((capacity == null) ? -1 : capacity);
+        putDouble((cpu == null) ? Double.NaN : cpu);
+        commit();
+    }
+
+    private void begin(byte type) {
+        record.clear();
+        record.put(type);
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            putInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            reserve(Integer.BYTES + bytes.length);
+            record.putInt(bytes.length);
+            record.put(bytes);
+        }
+    }
+
+    private void putInt(int value) {
+        reserve(Integer.BYTES);
+        record.putInt(value);
+    }
+
+    private void putDouble(double value) {
+        reserve(Double.BYTES);
+        record.putDouble(value);
+    }
+
+    private void putBoolean(boolean value) {
+        reserve(Byte.BYTES);
+        record.put((byte) (value ? 1 : 0));
+    }
+
+    private void reserve(int bytes) {
+        if (record.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(record.capacity() * 2, record.position() + bytes));
+            record.flip();
+            grown.put(record);
+            record = grown;
+        }
+    }
+
+    private void commit() {
+        record.flip();
+        commit(record);
+    }
+
+    /**
+     * @param record a single encoded record, only valid for the duration of the call.
+     */
+    protected abstract void commit(ByteBuffer record);
+
+    /**
+     * Applies a single record to a registry.
+     *
+     * @param record   the record positioned at its type.
+     * @param registry the registry to apply the mutation to.
+     */
+    public static void apply(ByteBuffer view, Registry registry) {
+        switch (view.get()) {
+            case ADD_SERVER:
+                Server server = new Server(getString(view), getString(view), null);
+                int port = view.getInt();
+                server.setPort((port == -1) ? null : port);
+                server.setFull(view.get() == 1);
+                server.setOwner(getString(view));
+                registry.addServer(server);
+                break;
+            case REMOVE_SERVER:
+                registry.removeServer(getString(view));
+                break;
+            case ADD_ROOM:
+                String name = getString(view);
+                registry.addRoom(name, new Room(getString(view)));
+                break;
+            case REMOVE_ROOM:
+                registry.removeRoom(getString(view), getString(view));
+                break;
+            case SET_FULL:
+                registry.setFull(getString(view), view.get() == 1);
+                break;
+            case SET_ALIVE:
+                registry.setAlive(getString(view), view.get() == 1);
+                break;
+            case SET_TRACKED:
+                registry.setTracked(getString(view), view.get() == 1);
+                break;
+            case SET_OWNER:
+                registry.setOwner(getString(view), getString(view));
+                break;
+            case SET_LOAD:
+                String loaded = getString(view);
+                int users = view.getInt();
+                int capacity = view.getInt();
+                double cpu = view.getDouble();
+                registry.setLoad(loaded, (users == -1) ? null : users,
+                        (capacity == -1) ? null : capacity, Double.isNaN(cpu) ? null : cpu);
+                break;
+        }
+    }
+
+    private static String getString(ByteBuffer view) {
+        int length = view.getInt();
+
+        if (length == -1) {
+            return null;
+        } else {
+            byte[] bytes = new byte[length];
+            view.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
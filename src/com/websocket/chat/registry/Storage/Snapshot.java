@@ -0,0 +1,200 @@
+package com.websocket.chat.registry.Storage;
+
+import com.websocket.chat.registry.Model.Room;
+import com.websocket.chat.registry.Model.Server;
+import com.websocket.chat.registry.Registry;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Created by Robin on 2016-01-05.
+ * <p>
+ * Compact binary image of the registry, the servers with their load, rooms and
+ * hit counts and the rooms that were last assigned to a server. Written to
+ * a temporary file that replaces the previous snapshot when complete.
+ */
+public abstract class Snapshot {
+    private static final int MAGIC = 0x52454753;
+    private static final int VERSION = 2;
+
+    /**
+     * @param file       the snapshot file to replace.
+     * @param generation the generation of the snapshot, the journal that
+     *                   follows the snapshot is reset to the same generation.
+     * @param registry   the registry to write.
+     * @throws IOException when the snapshot could not be written, the
+     *                     previous snapshot is then left in place.
+     */
+    public static void save(File file, long generation, Registry registry) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            write(out, generation, registry);
+        }
+
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @param generation the generation of the snapshot.
+     * @param registry   the registry to write.
+     * @return the snapshot in memory.
+     */
+    public static byte[] toBytes(long generation, Registry registry) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            write(out, generation, registry);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void write(DataOutputStream out, long generation, Registry registry) throws IOException {
+        List<Server> servers = new ArrayList<>(registry.getServers().values());
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(generation);
+        out.writeInt(servers.size());
+
+        for (Server server : servers) {
+            List<Room> rooms = new ArrayList<>(server.getRooms().values());
+
+            writeString(out, server.getName());
+            writeString(out, server.getIp());
+            out.writeInt((server.getPort() == null) ? -1 : server.getPort());
+            out.writeBoolean(server.getFull());
+            writeString(out, server.getOwner());
+            out.writeInt((server.getUsers() == null) ? -1 : server.getUsers());
+            out.writeInt((server.getCapacity() == null) ? -1 : server.getCapacity());
+            out.writeDouble((server.getCpu() == null) ? Double.NaN : server.getCpu());
+            out.writeBoolean(server.isAlive());
+            out.writeBoolean(server.isTracked());
+            out.writeInt(rooms.size());
+
+            for (Room room : rooms) {
+                writeString(out, room.getName());
+                out.writeDouble(room.getHits());
+            }
+        }
+
+        IOException[] failure = new IOException[1];
+
+        registry.getLastPolled().forEach((room, server) -> {
+            try {
+                out.writeBoolean(true);
+                writeString(out, room);
+                writeString(out, server);
+            } catch (IOException e) {
+                failure[0] = e;
+            }
+        });
+
+        if (failure[0] != null)
+            throw failure[0];
+
+        out.writeBoolean(false);
+    }
+
+    /**
+     * Adds the servers and room assignments in a snapshot to a registry.
+     *
+     * @param file     the snapshot file.
+     * @param registry the registry to load into, expected to be empty.
+     * @return the generation of the snapshot, 0 if there is no snapshot.
+     * @throws IOException when the snapshot cannot be read.
+     */
+    public static long load(File file, Registry registry) throws IOException {
+        if (!file.exists())
+            return 0;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return read(in, registry);
+        }
+    }
+
+    /**
+     * @param data     a snapshot in memory.
+     * @param registry the registry to load into, expected to be empty.
+     * @return the generation of the snapshot.
+     * @throws IOException when the snapshot cannot be read.
+     */
+    public static long load(byte[] data, Registry registry) throws IOException {
+        return read(new DataInputStream(new ByteArrayInputStream(data)), registry);
+    }
+
+    private static long read(DataInputStream in, Registry registry) throws IOException {
+        if (in.readInt() != MAGIC)
+            throw new IOException("Not a registry snapshot");
+
+        int version = in.readInt();
+
+        if (version < 1 || version > VERSION)
+            throw new IOException("Unsupported snapshot version " + version);
+
+        long generation = in.readLong();
+        int servers = in.readInt();
+
+        for (int i = 0; i < servers; i++) {
+            Server server = new Server(readString(in), readString(in), null);
+            int port = in.readInt();
+            server.setPort((port == -1) ? null : port);
+            server.setFull(in.readBoolean());
+            server.setOwner(readString(in));
+            int users = in.readInt();
+            int capacity = in.readInt();
+            double cpu = in.readDouble();
+            server.setUsers((users == -1) ? null : users);
+            server.setCapacity((capacity == -1) ? null : capacity);
+            server.setCpu(Double.isNaN(cpu) ? null : cpu);
+            server.setAlive(in.readBoolean());
+            server.setTracked(version >= 2 && in.readBoolean());
+            int rooms = in.readInt();
+
+            for (int k = 0; k < rooms; k++) {
+                Room room = new Room(readString(in));
+                room.setHits(in.readDouble());
+                server.getRooms().put(room.getName(), room);
+            }
+            registry.addServer(server);
+        }
+
+        while (in.readBoolean())
+            registry.getLastPolled().put(readString(in), readString(in));
+
+        return generation;
+    }
+
+    /**
+     * Strings are written as their length in UTF-8 bytes followed by the
+     * bytes, -1 for null, so that names are not limited in length.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+
+        if (length == -1) {
+            return null;
+        } else {
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}